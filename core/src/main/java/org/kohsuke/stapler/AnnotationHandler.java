@@ -68,24 +68,7 @@ public abstract class AnnotationHandler<T extends Annotation> {
 
     static Object handle(StaplerRequest request, Annotation[] annotations, String parameterName, Class targetType) throws ServletException {
         for (Annotation a : annotations) {
-            Class<? extends Annotation> at = a.annotationType();
-            AnnotationHandler h = HANDLERS.get(at);
-            if (h==null) {
-                InjectedParameter ip = at.getAnnotation(InjectedParameter.class);
-                if (ip!=null) {
-                    try {
-                        h = ip.value().newInstance();
-                    } catch (InstantiationException e) {
-                        throw new ServletException("Failed to instantiate parameter injector for "+at,e);
-                    } catch (IllegalAccessException e) {
-                        throw new ServletException("Failed to instantiate parameter injector for "+at,e);
-                    }
-                } else {
-                    h = NOT_HANDLER;
-                }
-                AnnotationHandler prev = HANDLERS.putIfAbsent(at, h);
-                if (prev!=null) h=prev;
-            }
+            AnnotationHandler h = get(a.annotationType());
             if (h==NOT_HANDLER)
                 continue;
             return h.parse(request,a,targetType,parameterName);
@@ -94,9 +77,36 @@ public abstract class AnnotationHandler<T extends Annotation> {
         return null; // probably we should report an error
     }
 
+    /**
+     * Finds the handler for the given parameter annotation.
+     *
+     * @return
+     *      {@link #NOT_HANDLER} if the annotation isn't an {@link InjectedParameter}.
+     */
+    static AnnotationHandler get(Class<? extends Annotation> at) throws ServletException {
+        AnnotationHandler h = HANDLERS.get(at);
+        if (h==null) {
+            InjectedParameter ip = at.getAnnotation(InjectedParameter.class);
+            if (ip!=null) {
+                try {
+                    h = ip.value().newInstance();
+                } catch (InstantiationException e) {
+                    throw new ServletException("Failed to instantiate parameter injector for "+at,e);
+                } catch (IllegalAccessException e) {
+                    throw new ServletException("Failed to instantiate parameter injector for "+at,e);
+                }
+            } else {
+                h = NOT_HANDLER;
+            }
+            AnnotationHandler prev = HANDLERS.putIfAbsent(at, h);
+            if (prev!=null) h=prev;
+        }
+        return h;
+    }
+
     private static final ConcurrentMap<Class<? extends Annotation>,AnnotationHandler> HANDLERS = new ConcurrentHashMap<Class<? extends Annotation>, AnnotationHandler>();
 
-    private static final AnnotationHandler NOT_HANDLER = new AnnotationHandler() {
+    /*package*/ static final AnnotationHandler NOT_HANDLER = new AnnotationHandler() {
         @Override
         public Object parse(StaplerRequest request, Annotation a, Class type, String parameterName) throws ServletException {
             return null;
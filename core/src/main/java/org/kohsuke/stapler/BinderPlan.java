@@ -0,0 +1,274 @@
+package org.kohsuke.stapler;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import net.sf.json.JSONObject;
+import org.kohsuke.stapler.RequestImpl.TypePair;
+import org.kohsuke.stapler.lang.MethodRef;
+
+import javax.annotation.PostConstruct;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Precompiled instructions for binding a {@link JSONObject} to a new instance of a class
+ * through its {@link DataBoundConstructor}, {@link DataBoundSetter}s, and {@link PostConstruct} methods.
+ *
+ * <p>
+ * Everything that only depends on the class is figured out once when the plan is compiled,
+ * so that {@link #bind(RequestImpl, JSONObject)} only needs to walk through the slots and convert values.
+ * The conversion itself still goes through {@link TypePair#convertJSON(RequestImpl, Object)},
+ * so that {@link BindInterceptor}s of the current request are honored.
+ *
+ * @see RequestImpl#bindJSON(Class, JSONObject)
+ */
+final class BinderPlan {
+    final Class<?> type;
+
+    private final BindingDescriptor descriptor;
+
+    /**
+     * Constructor to invoke, or null if the class cannot be instantiated by data binding,
+     * in which case {@link #descriptor} knows why.
+     */
+    private final Constructor<?> constructor;
+
+    /**
+     * Names and types of the constructor parameters, in that order.
+     */
+    private final String[] argumentNames;
+    private final TypePair[] argumentTypes;
+
+    /**
+     * Properties that are injected after the instantiation, keyed by the JSON property name.
+     * Those already covered by the constructor are excluded.
+     */
+    private final Map<String,Setter> setters;
+
+    /**
+     * {@link PostConstruct} methods, from those defined in the base type toward the derived type.
+     */
+    private final MethodRef[] postConstructMethods;
+
+    private BinderPlan(Class<?> type) {
+        this.type = type;
+        this.descriptor = BindingDescriptor.get(type);
+
+        Constructor<?> c = null;
+        String[] names = null;
+        TypePair[] types = null;
+        try {
+            names = descriptor.getParameterNames();
+            c = descriptor.getConstructor();
+            Class<?>[] pt = descriptor.getParameterTypes();
+            Type[] gpt = descriptor.getGenericParameterTypes();
+            types = new TypePair[names.length];
+            for (int i=0; i<names.length; i++)
+                types[i] = new TypePair(gpt[i], pt[i]);
+        } catch (IllegalArgumentException e) {
+            // this class isn't bindable. bind() will report the problem
+            c = null;
+        }
+        this.constructor = c;
+        this.argumentNames = names;
+        this.argumentTypes = types;
+
+        Map<String,Setter> s = new HashMap<String,Setter>();
+        for (Map.Entry<String,Method> e : descriptor.getSetterMethods().entrySet())
+            s.put(e.getKey(), new MethodSetter(e.getValue()));
+        // field injection takes precedence over setter methods
+        for (Map.Entry<String,Field> e : descriptor.getSetterFields().entrySet())
+            s.put(e.getKey(), new FieldSetter(e.getValue()));
+        if (names!=null) {
+            for (String n : names)
+                s.remove(n);
+        }
+        this.setters = s;
+
+        List<MethodRef> pcm = new ArrayList<MethodRef>();
+        for (Class<?> t=type; t!=null; t=t.getSuperclass()) {
+            List<MethodRef> declared = new ArrayList<MethodRef>();
+            for (Method m : t.getDeclaredMethods()) {
+                if (m.isAnnotationPresent(PostConstruct.class))
+                    declared.add(MethodRef.wrap(m));
+            }
+            pcm.addAll(0, declared);
+        }
+        this.postConstructMethods = pcm.toArray(new MethodRef[pcm.size()]);
+    }
+
+    /**
+     * Instantiates the class from the given JSON object by executing this plan.
+     */
+    Object bind(RequestImpl req, JSONObject j) {
+        if (constructor==null) {
+            // report the problem that prevented us from compiling the plan
+            descriptor.getParameterNames();
+            descriptor.getConstructor();
+            throw new AssertionError(type);
+        }
+
+        // the actual arguments to invoke the constructor with.
+        Object[] args = new Object[argumentTypes.length];
+        for (int i=0; i<args.length; i++) {
+            try {
+                args[i] = argumentTypes[i].convertJSON(req, j.get(argumentNames[i]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Failed to convert the "+argumentNames[i]+" parameter of the constructor "+constructor,e);
+            }
+        }
+
+        Object r = RequestImpl.invokeConstructor(constructor, args);
+
+        // try to assign rest of the properties
+        if (!setters.isEmpty()) {
+            for (String key : (Set<String>)j.keySet()) {
+                Setter s = setters.get(key);
+                if (s==null)    continue;
+                try {
+                    s.set(r, s.type.convertJSON(req, j.get(key)));
+                } catch (IllegalAccessException e) {
+                    LOGGER.log(WARNING, "Cannot access property " + key + " of " + r.getClass(), e);
+                } catch (InvocationTargetException e) {
+                    LOGGER.log(WARNING, "Cannot access property " + key + " of " + r.getClass(), e);
+                }
+            }
+        }
+
+        for (MethodRef m : postConstructMethods) {
+            try {
+                m.invoke(r);
+            } catch (InvocationTargetException e) {
+                throw new IllegalArgumentException("Unable to post-construct "+r,e);
+            } catch (IllegalAccessException e) {
+                throw (Error)new IllegalAccessError().initCause(e);
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Injects a property value after the instantiation.
+     */
+    private static abstract class Setter {
+        final TypePair type;
+
+        Setter(TypePair type) {
+            this.type = type;
+        }
+
+        abstract void set(Object bean, Object value) throws IllegalAccessException, InvocationTargetException;
+    }
+
+    private static final class FieldSetter extends Setter {
+        private final Field field;
+
+        FieldSetter(Field field) {
+            super(new TypePair(field));
+            this.field = field;
+        }
+
+        void set(Object bean, Object value) throws IllegalAccessException {
+            field.set(bean, value);
+        }
+    }
+
+    /**
+     * Invokes a public setter method through a {@link MethodHandle} adapted to {@code (Object,Object)void}.
+     */
+    private static final class MethodSetter extends Setter {
+        private final MethodHandle handle;
+        /**
+         * If the parameter is of a primitive type, the wrapper types of the values it accepts.
+         */
+        private final Set<Class<?>> accepted;
+
+        MethodSetter(Method m) {
+            super(new TypePair(m.getGenericParameterTypes()[0], m.getParameterTypes()[0]));
+            this.handle = MethodHandleFactory.get(m).asType(MethodType.methodType(void.class, Object.class, Object.class));
+            this.accepted = WIDENING.get(m.getParameterTypes()[0]);
+        }
+
+        void set(Object bean, Object value) throws InvocationTargetException {
+            // reject what Method.invoke would, so that only what the setter throws is wrapped
+            if (!isAssignable(value))
+                throw new IllegalArgumentException("argument type mismatch");
+            try {
+                handle.invokeExact(bean, value);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        private boolean isAssignable(Object value) {
+            if (accepted!=null)
+                return value!=null && accepted.contains(value.getClass());
+            return value==null || type.type.isInstance(value);
+        }
+    }
+
+    /**
+     * Wrapper types of the values that can be passed to a parameter of each primitive type, including widening.
+     */
+    private static final Map<Class<?>,Set<Class<?>>> WIDENING = new HashMap<Class<?>,Set<Class<?>>>();
+
+    static {
+        widens(boolean.class, Boolean.class);
+        widens(char.class, Character.class);
+        widens(byte.class, Byte.class);
+        widens(short.class, Short.class, Byte.class);
+        widens(int.class, Integer.class, Character.class, Short.class, Byte.class);
+        widens(long.class, Long.class, Integer.class, Character.class, Short.class, Byte.class);
+        widens(float.class, Float.class, Long.class, Integer.class, Character.class, Short.class, Byte.class);
+        widens(double.class, Double.class, Float.class, Long.class, Integer.class, Character.class, Short.class, Byte.class);
+    }
+
+    private static void widens(Class<?> primitive, Class<?>... wrappers) {
+        WIDENING.put(primitive, new HashSet<Class<?>>(Arrays.asList(wrappers)));
+    }
+
+    static BinderPlan get(Class<?> type) {
+        try {
+            return CACHE.getUnchecked(type);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all the compiled plans, for example when classes are reloaded.
+     */
+    static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * Soft values, since a plan and its {@link MethodHandle}s refer to the class being bound.
+     */
+    private static final LoadingCache<Class<?>,BinderPlan> CACHE = CacheBuilder.newBuilder().weakKeys().softValues().build(new CacheLoader<Class<?>,BinderPlan>() {
+        public BinderPlan load(Class<?> type) {
+            return new BinderPlan(type);
+        }
+    });
+
+    private static final Logger LOGGER = Logger.getLogger(BinderPlan.class.getName());
+}
@@ -0,0 +1,204 @@
+package org.kohsuke.stapler;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.beans.Introspector;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Data-binding related reflection information of a {@link Class}, computed once per class.
+ *
+ * <p>
+ * Determining the {@link DataBoundConstructor} parameter names can involve parsing the class file
+ * with ASM or loading the <tt>.stapler</tt> file, and finding {@link DataBoundSetter}s walks the whole
+ * class hierarchy. {@link RequestImpl} uses this cache instead of repeating that work for every object
+ * it binds.
+ *
+ * <p>
+ * Failures to find the constructor are cached as well, and reported every time they are asked.
+ *
+ * @see ClassDescriptor#loadConstructorParamNames()
+ */
+final class BindingDescriptor {
+    final Class<?> type;
+
+    private final String[] parameterNames;
+    private final Constructor<?> constructor;
+    private final Class<?>[] parameterTypes;
+    private final Type[] genericParameterTypes;
+
+    /**
+     * If we failed to determine {@link #parameterNames} or {@link #constructor}, the reason why.
+     */
+    private final IllegalArgumentException parameterNamesProblem, constructorProblem;
+
+    /**
+     * {@link DataBoundSetter} fields keyed by their names, including private ones from the base classes.
+     * If the same name appears more than once, the one from the most derived class wins.
+     */
+    private final Map<String,Field> setterFields;
+
+    /**
+     * Public {@link DataBoundSetter} methods keyed by their property names.
+     * If the same name appears more than once, the one from the most derived class wins.
+     */
+    private final Map<String,Method> setterMethods;
+
+    private BindingDescriptor(Class<?> type) {
+        this.type = type;
+
+        String[] names = null;
+        Constructor<?> c = null;
+        IllegalArgumentException np = null, cp = null;
+        try {
+            names = ClassDescriptor.loadConstructorParamNames(type);
+            try {
+                c = findConstructor(type, names.length);
+            } catch (IllegalArgumentException e) {
+                cp = e;
+            }
+        } catch (IllegalArgumentException e) {
+            np = cp = e;
+        }
+        this.parameterNames = names;
+        this.constructor = c;
+        this.parameterTypes = c!=null ? c.getParameterTypes() : null;
+        this.genericParameterTypes = c!=null ? c.getGenericParameterTypes() : null;
+        this.parameterNamesProblem = np;
+        this.constructorProblem = cp;
+
+        Map<String,Field> fields = new HashMap<String,Field>();
+        Map<String,Method> methods = new HashMap<String,Method>();
+        for (Class<?> t=type; t!=null; t=t.getSuperclass()) {
+            for (Field f : t.getDeclaredFields()) {
+                if (fields.containsKey(f.getName()) || f.getAnnotation(DataBoundSetter.class)==null)
+                    continue;
+                f.setAccessible(true);
+                fields.put(f.getName(), f);
+            }
+            for (Method m : t.getDeclaredMethods()) {
+                if (!Modifier.isPublic(m.getModifiers())
+                 || !m.getName().startsWith("set")
+                 || m.getParameterTypes().length!=1
+                 || !m.isAnnotationPresent(DataBoundSetter.class))
+                    continue;
+
+                String propertyName = Introspector.decapitalize(m.getName().substring(3));
+                if (!methods.containsKey(propertyName))
+                    methods.put(propertyName, m);
+            }
+        }
+        this.setterFields = Collections.unmodifiableMap(fields);
+        this.setterMethods = Collections.unmodifiableMap(methods);
+    }
+
+    /**
+     * Names of the parameters of the {@link DataBoundConstructor}.
+     * The caller must not modify the returned array.
+     *
+     * @throws NoStaplerConstructorException
+     *      if the parameter names cannot be determined.
+     */
+    String[] getParameterNames() {
+        if (parameterNamesProblem!=null)
+            throw rethrow(parameterNamesProblem);
+        return parameterNames;
+    }
+
+    /**
+     * Constructor used for data binding, whose parameters correspond to {@link #getParameterNames()}.
+     */
+    Constructor<?> getConstructor() {
+        if (constructorProblem!=null)
+            throw rethrow(constructorProblem);
+        return constructor;
+    }
+
+    Class<?>[] getParameterTypes() {
+        getConstructor();
+        return parameterTypes;
+    }
+
+    Type[] getGenericParameterTypes() {
+        getConstructor();
+        return genericParameterTypes;
+    }
+
+    /**
+     * {@link DataBoundSetter} fields keyed by their property names.
+     */
+    Map<String,Field> getSetterFields() {
+        return setterFields;
+    }
+
+    /**
+     * Public {@link DataBoundSetter} methods keyed by their property names.
+     */
+    Map<String,Method> getSetterMethods() {
+        return setterMethods;
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, int length) {
+        Constructor<?>[] ctrs = type.getConstructors();
+        // one with DataBoundConstructor is the most reliable
+        for (Constructor c : ctrs) {
+            if(c.getAnnotation(DataBoundConstructor.class)!=null) {
+                if(c.getParameterTypes().length!=length)
+                    throw new IllegalArgumentException(c+" has @DataBoundConstructor but it doesn't match with your .stapler file. Try clean rebuild");
+                return c;
+            }
+        }
+        // if not, maybe this was from @stapler-constructor,
+        // so look for the constructor with the expected argument length.
+        // this is not very reliable.
+        for (Constructor c : ctrs) {
+            if(c.getParameterTypes().length==length)
+                return c;
+        }
+        throw new IllegalArgumentException(type+" does not have a constructor with "+length+" arguments");
+    }
+
+    /**
+     * Creates a fresh copy of a cached failure, so that each caller sees its own stack trace.
+     */
+    private static IllegalArgumentException rethrow(IllegalArgumentException e) {
+        if (e instanceof NoStaplerConstructorException)
+            return new NoStaplerConstructorException(e.getMessage(), e.getCause());
+        return new IllegalArgumentException(e.getMessage(), e.getCause());
+    }
+
+    static BindingDescriptor get(Class<?> type) {
+        try {
+            return CACHE.getUnchecked(type);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all the cached information, for example when classes are reloaded.
+     */
+    static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    /**
+     * Descriptors hold their types and members, so values are soft to let discarded classes go,
+     * as in {@link ClassDescriptor#get(Class)}.
+     */
+    private static final LoadingCache<Class<?>,BindingDescriptor> CACHE = CacheBuilder.newBuilder().weakKeys().softValues().build(new CacheLoader<Class<?>,BindingDescriptor>() {
+        public BindingDescriptor load(Class<?> type) {
+            return new BindingDescriptor(type);
+        }
+    });
+}
@@ -0,0 +1,122 @@
+package org.kohsuke.stapler;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A range of bytes requested with the <tt>Range</tt> header, as in RFC 7233.
+ */
+final class ByteRange {
+    /**
+     * Offset of the first byte.
+     */
+    final long first;
+    /**
+     * Offset of the last byte, inclusive.
+     */
+    final long last;
+
+    ByteRange(long first, long last) {
+        this.first = first;
+        this.last = last;
+    }
+
+    long length() {
+        return last-first+1;
+    }
+
+    /**
+     * Value of the <tt>Content-Range</tt> header for this range.
+     */
+    String contentRange(long total) {
+        return "bytes "+first+'-'+last+'/'+total;
+    }
+
+    @Override
+    public String toString() {
+        return first+"-"+last;
+    }
+
+    /**
+     * Parses the <tt>Range</tt> header for a representation of the given length.
+     *
+     * @return
+     *      null if the header is to be ignored and the whole representation sent, because it's malformed,
+     *      isn't in bytes, or asks for too many ranges. An empty list if none of the ranges is satisfiable.
+     *      Otherwise the ranges to send, sorted and with overlapping or adjacent ones coalesced.
+     */
+    static @CheckForNull List<ByteRange> parse(String header, long length) {
+        header = header.trim();
+        if (!header.regionMatches(true,0,"bytes=",0,6))
+            return null;
+
+        List<ByteRange> ranges = new ArrayList<ByteRange>();
+        int specs = 0;
+        for (String spec : header.substring(6).split(",")) {
+            spec = spec.trim();
+            if (spec.length()==0)   continue;
+            specs++;
+
+            int dash = spec.indexOf('-');
+            if (dash<0)     return null;
+            long first, last;
+            if (dash==0) {
+                // the last N bytes
+                long n = parseNumber(spec.substring(1));
+                if (n<0)    return null;
+                first = Math.max(0,length-n);
+                last = n==0 ? -1 : length-1;
+            } else {
+                first = parseNumber(spec.substring(0,dash));
+                String l = spec.substring(dash+1);
+                last = l.length()==0 ? Long.MAX_VALUE : parseNumber(l);
+                if (first<0 || last<0 || last<first)
+                    return null;
+                last = Math.min(last,length-1);
+            }
+            if (first<length && first<=last)
+                ranges.add(new ByteRange(first,last));
+            // otherwise unsatisfiable
+        }
+        if (specs==0)
+            return null;
+
+        Collections.sort(ranges, BY_FIRST);
+        List<ByteRange> r = new ArrayList<ByteRange>(ranges.size());
+        for (ByteRange b : ranges) {
+            ByteRange prev = r.isEmpty() ? null : r.get(r.size()-1);
+            if (prev!=null && b.first<=prev.last+1)
+                r.set(r.size()-1, new ByteRange(prev.first,Math.max(prev.last,b.last)));
+            else
+                r.add(b);
+        }
+        return r.size()>MAX_RANGES ? null : r;
+    }
+
+    /**
+     * @return -1 if the string isn't a non-negative decimal number.
+     */
+    private static long parseNumber(String s) {
+        if (s.length()==0 || s.length()>18)
+            return -1;
+        for (int i=0; i<s.length(); i++)
+            if (s.charAt(i)<'0' || '9'<s.charAt(i))
+                return -1;
+        return Long.parseLong(s);
+    }
+
+    private static final Comparator<ByteRange> BY_FIRST = new Comparator<ByteRange>() {
+        public int compare(ByteRange a, ByteRange b) {
+            return a.first<b.first ? -1 : a.first==b.first ? 0 : 1;
+        }
+    };
+
+    /**
+     * Requests for more ranges than this, even after coalescing, are served in full,
+     * rather than sending lots of tiny parts.
+     */
+    static final int MAX_RANGES = 16;
+}
@@ -23,6 +23,11 @@
 
 package org.kohsuke.stapler;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.apache.commons.io.IOUtils;
 import org.jvnet.tiger_types.Types;
 import org.kohsuke.asm5.ClassReader;
@@ -123,6 +128,37 @@ public final class ClassDescriptor {
         this.methods = new FunctionList(functions);
     }
 
+    /**
+     * Returns the shared {@link ClassDescriptor} of the given class, without wrappers.
+     *
+     * <p>
+     * Building a {@link ClassDescriptor} walks the whole type hierarchy, so this is cached per class.
+     * The cache isn't kept on the classes with {@link ClassValue}, since classes of the parent class loaders,
+     * like {@link Object}, would then keep the class loader of Stapler alive. Keys are weak, but a descriptor
+     * refers to its class, which a weak key alone would never let go of, so values are soft:
+     * descriptors of discarded classes go away when memory runs short, at the cost of rebuilding the others.
+     */
+    public static ClassDescriptor get(Class clazz) {
+        try {
+            return CACHE.getUnchecked(clazz);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all the cached descriptors, for example when classes are reloaded.
+     */
+    /*package*/ static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    private static final LoadingCache<Class<?>,ClassDescriptor> CACHE = CacheBuilder.newBuilder().weakKeys().softValues().build(new CacheLoader<Class<?>,ClassDescriptor>() {
+        public ClassDescriptor load(Class<?> type) {
+            return new ClassDescriptor(type);
+        }
+    });
+
     /**
      * Finds all the public methods of 'c' across class/interface hierarchy and accumulates into a list,
      * from ancestor first.
@@ -190,8 +226,13 @@ public final class ClassDescriptor {
     public static String[] loadParameterNames(Method m) {
         CapturedParameterNames cpn = m.getAnnotation(CapturedParameterNames.class);
         if(cpn!=null)   return cpn.value();
+        if(m.getParameterTypes().length==0)    return EMPTY_ARRAY;
 
-        // debug information, if present, is more trustworthy
+        // recorded at compile time by RoutingIndexProcessor, which is as good as debug information and cheaper
+        String[] names = RoutingIndex.get(m.getDeclaringClass()).getParameterNames(m);
+        if(names!=null) return names;
+
+        // debug information, if present, is more trustworthy than the .stapler files below
         try {
             String[] n = ASM.loadParametersFromAsm(m);
             if (n!=null)    return n;
@@ -249,8 +290,18 @@ public final class ClassDescriptor {
      * First, try to load names from the debug information. Otherwise
      * if there's the .stapler file, load it as a property file and determines the constructor parameter names.
      * Otherwise, look for {@link CapturedParameterNames} annotation.
+     *
+     * <p>
+     * The result is cached per class, so repeated calls do not load the class file again.
      */
     public String[] loadConstructorParamNames() {
+        return BindingDescriptor.get(clazz).getParameterNames().clone();
+    }
+
+    /**
+     * Uncached version of {@link #loadConstructorParamNames()}.
+     */
+    /*package*/ static String[] loadConstructorParamNames(Class<?> clazz) {
         Constructor<?>[] ctrs = clazz.getConstructors();
         // which constructor was data bound?
         Constructor<?> dbc = null;
@@ -0,0 +1,70 @@
+package org.kohsuke.stapler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link MetaClass#dispatchers} indexed by the URL token that they react to.
+ *
+ * <p>
+ * {@link NameBasedDispatcher}s only ever react to a single token value, so for a given token
+ * there's no point in asking all the other {@link NameBasedDispatcher}s. This class precomputes,
+ * for every such name, the sub-list of dispatchers that can possibly match, in the original order
+ * of preference. Tokens that no {@link NameBasedDispatcher} responds to (and the end of the URL)
+ * map to the list of dispatchers that aren't bound to any name.
+ *
+ * <p>
+ * This relies on the fact that a {@link Dispatcher} that declines a request leaves
+ * {@link TokenList#idx} where it was, which all the built-in dispatchers do.
+ *
+ * @see MetaClass#getDispatchers(TokenList)
+ */
+final class DispatcherIndex {
+    /**
+     * Dispatchers that are not bound to any name.
+     */
+    private final Dispatcher[] unnamed;
+
+    /**
+     * From the token to the dispatchers that should be tried for it.
+     */
+    private final Map<String,Dispatcher[]> named = new HashMap<String,Dispatcher[]>();
+
+    DispatcherIndex(List<Dispatcher> dispatchers) {
+        List<Dispatcher> u = new ArrayList<Dispatcher>();
+        Map<String,List<Dispatcher>> n = new HashMap<String,List<Dispatcher>>();
+
+        for (Dispatcher d : dispatchers) {
+            if (d instanceof NameBasedDispatcher) {
+                String name = ((NameBasedDispatcher) d).name;
+                List<Dispatcher> l = n.get(name);
+                if (l==null) {
+                    // all the unnamed dispatchers seen so far take precedence
+                    l = new ArrayList<Dispatcher>(u);
+                    n.put(name,l);
+                }
+                l.add(d);
+            } else {
+                u.add(d);
+                for (List<Dispatcher> l : n.values())
+                    l.add(d);
+            }
+        }
+
+        unnamed = u.toArray(new Dispatcher[u.size()]);
+        for (Map.Entry<String,List<Dispatcher>> e : n.entrySet())
+            named.put(e.getKey(), e.getValue().toArray(new Dispatcher[e.getValue().size()]));
+    }
+
+    /**
+     * Returns the dispatchers to be tried in order for the current position of the given tokens.
+     */
+    Dispatcher[] get(TokenList tokens) {
+        if (!tokens.hasMore())
+            return unnamed;
+        Dispatcher[] r = named.get(tokens.peek());
+        return r!=null ? r : unnamed;
+    }
+}
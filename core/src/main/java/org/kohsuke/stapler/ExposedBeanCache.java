@@ -0,0 +1,122 @@
+package org.kohsuke.stapler;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
+import com.jcraft.jzlib.GZIPOutputStream;
+import org.kohsuke.stapler.export.ExportConfig;
+import org.kohsuke.stapler.export.VersionedExportedBean;
+
+import javax.annotation.CheckForNull;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * ETags and rendered responses of {@link VersionedExportedBean}s for
+ * {@link ResponseImpl#serveExposedBean(StaplerRequest, Object, ExportConfig)}.
+ *
+ * <p>
+ * The cache of rendered responses is off by default. Set the system property
+ * <tt>org.kohsuke.stapler.ExposedBeanCache.size</tt> to the number of bytes it may use to enable it.
+ */
+final class ExposedBeanCache {
+    /**
+     * Computes the ETag of the response that exposes the given bean, or null if the bean isn't versioned.
+     *
+     * @param tree
+     *      The tree expression, if any.
+     * @param depth
+     *      The depth parameter, if any.
+     * @param pad
+     *      The JSONP padding, if any.
+     */
+    static @CheckForNull String etag(Object bean, ExportConfig config, String tree, String depth, String pad) {
+        if (!(bean instanceof VersionedExportedBean))
+            return null;
+        String version = ((VersionedExportedBean) bean).getExportVersion();
+        if (version==null)
+            return null;
+
+        // everything that affects the response goes into the hash
+        StringBuilder buf = new StringBuilder();
+        buf.append(bean.getClass().getName()).append('\n')
+           .append(version).append('\n')
+           .append(config.getFlavor()).append('\n')
+           .append(tree).append('\n')
+           .append(depth).append('\n')
+           .append(pad).append('\n')
+           .append(config.isPrettyPrint()).append('\n')
+           .append(config.isSkipIfFail()).append('\n')
+           .append(config.getClassAttribute().getName()).append('\n')
+           .append(config.getExportInterceptor().getClass().getName());
+        return '"' + Hashing.sha1().hashString(buf, Charsets.UTF_8).toString() + '"';
+    }
+
+    /**
+     * Key of {@link #RENDERED} for the response with the given ETag.
+     * The ETag only tells versions of the same bean apart, as ETags are per URL,
+     * so different beans of the same class and version at other URLs must not share the rendered response.
+     */
+    static String key(HttpServletRequest req, String etag) {
+        return req.getRequestURI()+' '+etag;
+    }
+
+    /**
+     * Does the value of the <tt>If-None-Match</tt> header match the ETag?
+     */
+    static boolean matches(@CheckForNull String ifNoneMatch, String etag) {
+        if (ifNoneMatch==null)
+            return false;
+        for (String t : ifNoneMatch.split(",")) {
+            t = t.trim();
+            if (t.startsWith("W/"))     // weak comparison is good enough to skip the body
+                t = t.substring(2);
+            if (t.equals(etag) || t.equals("*"))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * A response rendered in UTF-8, as is and gzipped.
+     */
+    static final class Rendered {
+        final byte[] data;
+        final byte[] gzipped;
+
+        Rendered(byte[] data) throws IOException {
+            this.data = data;
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length/4+64);
+            GZIPOutputStream gz = new GZIPOutputStream(buf);
+            gz.write(data);
+            gz.close();
+            this.gzipped = buf.toByteArray();
+        }
+
+        int size() {
+            return data.length + gzipped.length;
+        }
+    }
+
+    /**
+     * Rendered responses keyed by {@link #key(HttpServletRequest, String)}, or null if the cache is disabled.
+     */
+    static final @CheckForNull Cache<String,Rendered> RENDERED;
+
+    static {
+        long size = Long.getLong(ExposedBeanCache.class.getName()+".size", 0);
+        RENDERED = size<=0 ? null : CacheBuilder.newBuilder()
+                .maximumWeight(size)
+                .weigher(new Weigher<String, Rendered>() {
+                    public int weigh(String key, Rendered value) {
+                        return value.size();
+                    }
+                })
+                .build();
+    }
+
+    private ExposedBeanCache() {}
+}
@@ -140,8 +140,36 @@ public abstract class Facet {
      * This is for those languages that use something other than {@link Class} to represent the concept of a class.
      * Those facets that are fine with {@code o.getClass()} should return null so that it gives other facets a chance
      * to map it better.
+     *
+     * @see #claims(Class)
      */
     public Klass<?> getKlass(Object o) {
         return null;
     }
+
+    /**
+     * Tells {@link WebApp} up front whether {@link #getKlass(Object)} may return non-null for instances of the given class.
+     *
+     * <p>
+     * Instances of classes that no facet claims are mapped straight to their {@link MetaClass}
+     * without consulting {@link #getKlass(Object)}. The default implementation claims all the classes
+     * if this facet overrides {@link #getKlass(Object)}, and none otherwise. Facets that override
+     * {@link #getKlass(Object)} should override this method, too.
+     *
+     * @param type
+     *      {@code o.getClass()}
+     */
+    public boolean claims(Class<?> type) {
+        return overridesGetKlass;
+    }
+
+    private final boolean overridesGetKlass = overrides(getClass());
+
+    private static boolean overrides(Class<? extends Facet> c) {
+        try {
+            return c.getMethod("getKlass",Object.class).getDeclaringClass()!=Facet.class;
+        } catch (NoSuchMethodException e) {
+            throw new AssertionError(e);
+        }
+    }
 }
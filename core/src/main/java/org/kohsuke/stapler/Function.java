@@ -35,6 +35,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
@@ -144,39 +146,17 @@ public abstract class Function {
      * then finally call {@link #invoke}.
      */
     Object bindAndInvoke(Object o, StaplerRequest req, StaplerResponse rsp, Object... headArgs) throws IllegalAccessException, InvocationTargetException, ServletException {
-        Class[] types = getParameterTypes();
-        Annotation[][] annotations = getParameterAnnotations();
-        String[] parameterNames = getParameterNames();
+        ParameterResolver[] resolvers = getParameterResolvers();
 
-        Object[] arguments = new Object[types.length];
+        Object[] arguments = new Object[resolvers.length];
 
         // fill in the first N arguments
         System.arraycopy(headArgs,0,arguments,0,headArgs.length);
 
         try {
             // find the rest of the arguments. either known types, or with annotations
-            for( int i=headArgs.length; i<types.length; i++ ) {
-                Class t = types[i];
-                if(t==StaplerRequest.class || t==HttpServletRequest.class) {
-                    arguments[i] = req;
-                    continue;
-                }
-                if(t==StaplerResponse.class || t==HttpServletResponse.class) {
-                    arguments[i] = rsp;
-                    continue;
-                }
-
-                // if the databinding method is provided, call that
-                Function binder = PARSE_METHODS.getUnchecked(t);
-                if (binder!=RETURN_NULL) {
-                    arguments[i] = binder.bindAndInvoke(null,req,rsp);
-                    continue;
-                }
-                
-                arguments[i] = AnnotationHandler.handle(req,annotations[i],
-                    i<parameterNames.length ? parameterNames[i] : null,
-                    t);
-            }
+            for( int i=headArgs.length; i<resolvers.length; i++ )
+                arguments[i] = resolvers[i].resolve(req,rsp);
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Failed to invoke "+getDisplayName(),e);
         }
@@ -184,6 +164,111 @@ public abstract class Function {
         return invoke(req, rsp, o,arguments);
     }
 
+    /**
+     * How to obtain each parameter value, computed on the first invocation.
+     * Assumes that the parameter types, annotations, and names of a {@link Function} do not change.
+     */
+    private volatile ParameterResolver[] resolvers;
+
+    private ParameterResolver[] getParameterResolvers() throws ServletException {
+        ParameterResolver[] r = resolvers;
+        if (r==null) {
+            Class[] types = getParameterTypes();
+            Annotation[][] annotations = getParameterAnnotations();
+            String[] parameterNames = getParameterNames();
+
+            r = new ParameterResolver[types.length];
+            try {
+                for( int i=0; i<types.length; i++ )
+                    r[i] = ParameterResolver.create(types[i], annotations[i], i<parameterNames.length ? parameterNames[i] : null);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Failed to invoke "+getDisplayName(),e);
+            }
+            resolvers = r;
+        }
+        return r;
+    }
+
+    /**
+     * Obtains the value of one parameter of a {@link Function} from the current request.
+     */
+    private static abstract class ParameterResolver {
+        abstract Object resolve(StaplerRequest req, StaplerResponse rsp) throws IllegalAccessException, InvocationTargetException, ServletException;
+
+        static ParameterResolver create(Class t, Annotation[] annotations, String parameterName) throws ServletException {
+            if(t==StaplerRequest.class || t==HttpServletRequest.class)
+                return REQUEST;
+            if(t==StaplerResponse.class || t==HttpServletResponse.class)
+                return RESPONSE;
+
+            // if the databinding method is provided, call that
+            Function binder = PARSE_METHODS.getUnchecked(t);
+            if (binder!=RETURN_NULL)
+                return new Binder(binder);
+
+            for (Annotation a : annotations) {
+                AnnotationHandler h = AnnotationHandler.get(a.annotationType());
+                if (h!=AnnotationHandler.NOT_HANDLER)
+                    return new Injected(h,a,t,parameterName);
+            }
+            return NULL; // probably we should report an error
+        }
+
+        static final ParameterResolver REQUEST = new ParameterResolver() {
+            Object resolve(StaplerRequest req, StaplerResponse rsp) {
+                return req;
+            }
+        };
+
+        static final ParameterResolver RESPONSE = new ParameterResolver() {
+            Object resolve(StaplerRequest req, StaplerResponse rsp) {
+                return rsp;
+            }
+        };
+
+        static final ParameterResolver NULL = new ParameterResolver() {
+            Object resolve(StaplerRequest req, StaplerResponse rsp) {
+                return null;
+            }
+        };
+
+        /**
+         * Uses the 'fromStapler' method of the parameter type.
+         */
+        private static final class Binder extends ParameterResolver {
+            private final Function binder;
+
+            Binder(Function binder) {
+                this.binder = binder;
+            }
+
+            Object resolve(StaplerRequest req, StaplerResponse rsp) throws IllegalAccessException, InvocationTargetException, ServletException {
+                return binder.bindAndInvoke(null,req,rsp);
+            }
+        }
+
+        /**
+         * Uses the {@link AnnotationHandler} of an {@link InjectedParameter} annotation.
+         */
+        private static final class Injected extends ParameterResolver {
+            private final AnnotationHandler handler;
+            private final Annotation annotation;
+            private final Class type;
+            private final String parameterName;
+
+            Injected(AnnotationHandler handler, Annotation annotation, Class type, String parameterName) {
+                this.handler = handler;
+                this.annotation = annotation;
+                this.type = type;
+                this.parameterName = parameterName;
+            }
+
+            Object resolve(StaplerRequest req, StaplerResponse rsp) throws ServletException {
+                return handler.parse(req,annotation,type,parameterName);
+            }
+        }
+    }
+
     /**
      * Computing map that discovers the static 'fromStapler' method from a class.
      * The discovered method will be returned as a Function so that the invocation can do parameter injections.
@@ -201,7 +286,7 @@ public abstract class Function {
         PARSE_METHODS = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<Class,Function>() {
             public Function load(Class from) {
                 // MethdFunction for invoking a static method as a static method
-                FunctionList methods = new ClassDescriptor(from).methods.name("fromStapler");
+                FunctionList methods = ClassDescriptor.get(from).methods.name("fromStapler");
                 switch (methods.size()) {
                 case 0: return RETURN_NULL;
                 default:
@@ -281,12 +366,18 @@ public abstract class Function {
 
     private abstract static class MethodFunction extends Function {
         protected final Method m;
-        private volatile MethodHandle handle;
+        /**
+         * {@link #m} adapted to {@code (Object,Object[])Object}, so that {@link #invoke} can call it
+         * through {@link MethodHandle#invokeExact(Object...)} with no per-call adaptation.
+         */
+        private volatile MethodHandle invoker;
+        private final int arity;
 
         private volatile String[] names;
 
         public MethodFunction(Method m) {
             this.m = m;
+            this.arity = m.getParameterTypes().length;
             // defer the resolution of MethodHandle so that a Function can be built to represent a non-public method
         }
 
@@ -322,30 +413,30 @@ public abstract class Function {
             return m.getReturnType();
         }
 
-        protected MethodHandle handle() {
-            if (handle==null) {
-                handle = MethodHandleFactory.get(m);
+        protected MethodHandle invoker() {
+            if (invoker==null) {
+                MethodHandle h = MethodHandleFactory.get(m).asFixedArity();
+                if (Modifier.isStatic(m.getModifiers()))
+                    h = MethodHandles.dropArguments(h, 0, Object.class);
+                invoker = h.asType(MethodType.genericMethodType(arity+1))
+                           .asSpreader(Object[].class, arity);
             }
-            return handle;
+            return invoker;
         }
 
         @Override
         public Object invoke(StaplerRequest req, StaplerResponse rsp, Object o, Object... args) throws IllegalAccessException, InvocationTargetException {
-            Object[] arguments;
-            if (Modifier.isStatic(m.getModifiers())) {
-                arguments = args;
-            } else {
-                arguments = new Object[args.length + 1];
-                arguments[0] = o;
-                System.arraycopy(args, 0, arguments, 1, args.length);
-            }
-            try {
-                return handle().invokeWithArguments(arguments);
-            } catch (WrongMethodTypeException x) {
-                LOGGER.log(Level.WARNING, handle + " failed on " + o + "." + m + Arrays.toString(arguments), x);
-            } catch (Throwable throwable) {
-                throw new InvocationTargetException(throwable);
+            MethodHandle h = invoker();
+            if (args.length==arity) {
+                try {
+                    return (Object)h.invokeExact(o, args);
+                } catch (WrongMethodTypeException x) {
+                    LOGGER.log(Level.WARNING, h + " failed on " + o + "." + m + Arrays.toString(args), x);
+                } catch (Throwable throwable) {
+                    throw new InvocationTargetException(throwable);
+                }
             }
+            // let reflection report the problem
             return m.invoke(o, args);
         }
     }
@@ -25,15 +25,33 @@ package org.kohsuke.stapler;
 
 import java.lang.annotation.Annotation;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Immutable list of {@link Function}s.
  *
+ * <p>
+ * Since the list doesn't change, the results of {@link #name(String)}, {@link #prefix(String)},
+ * {@link #annotated(Class)}, and {@link #webMethods()} are computed once and reused,
+ * which pays off for the shared lists of {@link ClassDescriptor#get(Class)}.
+ *
  * @author Kohsuke Kawaguchi
  */
 public final class FunctionList extends AbstractList<Function> {
     private final Function[] functions;
 
+    /**
+     * {@link Function}s keyed by their names, built on the first {@link #name(String)} call.
+     */
+    private volatile Map<String,FunctionList> byName;
+
+    /**
+     * Results of {@link #prefix(String)}, {@link #annotated(Class)}, and {@link #webMethods()},
+     * keyed by the prefix, the annotation type, and {@link #WEB_METHODS} respectively.
+     */
+    private volatile ConcurrentMap<Object,FunctionList> views;
+
     public FunctionList(Function... functions) {
         this.functions = functions;
     }
@@ -50,6 +68,24 @@ public final class FunctionList extends AbstractList<Function> {
         return new FunctionList(r.toArray(new Function[0]));
     }
 
+    private FunctionList view(Object key, Filter f) {
+        ConcurrentMap<Object,FunctionList> v = views;
+        if (v==null) {
+            synchronized (this) {
+                v = views;
+                if (v==null)
+                    views = v = new ConcurrentHashMap<Object,FunctionList>();
+            }
+        }
+        FunctionList r = v.get(key);
+        if (r==null) {
+            r = filter(f);
+            FunctionList prev = v.putIfAbsent(key,r);
+            if (prev!=null) r = prev;
+        }
+        return r;
+    }
+
     @Override
     public Function get(int index) {
         return functions[index];
@@ -85,7 +121,7 @@ public final class FunctionList extends AbstractList<Function> {
      * Returns {@link Function}s that start with the given prefix.
      */
     public FunctionList prefix(final String prefix) {
-        return filter(new Filter() {
+        return view(prefix, new Filter() {
             public boolean keep(Function m) {
                 return m.getName().startsWith(prefix);
             }
@@ -96,7 +132,7 @@ public final class FunctionList extends AbstractList<Function> {
      * Returns {@link Function}s that are annotated with the given annotation.
      */
     public FunctionList annotated(final Class<? extends Annotation> ann) {
-        return filter(new Filter() {
+        return view(ann, new Filter() {
             public boolean keep(Function m) {
                 return m.getAnnotation(ann)!=null;
             }
@@ -107,11 +143,21 @@ public final class FunctionList extends AbstractList<Function> {
      * Returns {@link Function}s that have the given name.
      */
     public FunctionList name(final String name) {
-        return filter(new Filter() {
-            public boolean keep(Function m) {
-                return m.getName().equals(name);
+        Map<String,FunctionList> m = byName;
+        if (m==null) {
+            Map<String,List<Function>> groups = new HashMap<String,List<Function>>();
+            for (Function f : functions) {
+                List<Function> g = groups.get(f.getName());
+                if (g==null)    groups.put(f.getName(), g=new ArrayList<Function>(1));
+                g.add(f);
             }
-        });
+            m = new HashMap<String,FunctionList>();
+            for (Map.Entry<String,List<Function>> e : groups.entrySet())
+                m.put(e.getKey(), new FunctionList(e.getValue()));
+            byName = m;
+        }
+        FunctionList r = m.get(name);
+        return r!=null ? r : EMPTY;
     }
 
     /**
@@ -130,7 +176,7 @@ public final class FunctionList extends AbstractList<Function> {
      * implicitly so (by having its name start with 'do')
      */
     public FunctionList webMethods() {
-        return filter(new Filter() {
+        return view(WEB_METHODS, new Filter() {
             public boolean keep(Function m) {
                 return m.getName().startsWith("do") || m.getAnnotation(WebMethod.class)!=null;
             }
@@ -154,4 +200,8 @@ public final class FunctionList extends AbstractList<Function> {
             }
         });
     }
+
+    private static final FunctionList EMPTY = new FunctionList();
+
+    private static final Object WEB_METHODS = new Object();
 }
@@ -0,0 +1,176 @@
+package org.kohsuke.stapler;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Formats and parses the dates of HTTP headers like <tt>Last-Modified</tt>, <tt>Expires</tt>,
+ * and <tt>If-Modified-Since</tt>, without {@link java.text.SimpleDateFormat}.
+ *
+ * <p>
+ * Headers only have the second precision, and the same few timestamps are formatted over and over
+ * (the current second for <tt>Expires</tt>, and the timestamps of the popular resources for <tt>Last-Modified</tt>),
+ * so the formatted values of recently seen seconds are remembered.
+ */
+final class HttpDates {
+    private HttpDates() {}
+
+    /**
+     * Formats the time in the RFC 1123 format, like <tt>Sun, 06 Nov 1994 08:49:37 GMT</tt>.
+     */
+    static String format(long time) {
+        long second = time>=0 ? time/1000 : (time-999)/1000;
+        int slot = (int)(second & (CACHE_SIZE-1));
+        Formatted f = CACHE[slot];
+        if (f!=null && f.second==second)
+            return f.text;
+
+        String text = format(second, new StringBuilder(29));
+        CACHE[slot] = new Formatted(second,text);
+        return text;
+    }
+
+    private static String format(long second, StringBuilder buf) {
+        long days = second>=0 ? second/86400 : (second-86399)/86400;
+        int secondOfDay = (int)(second-days*86400);
+
+        // civil date from the days since the epoch, see http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = (z>=0 ? z : z-146096)/146097;
+        int doe = (int)(z-era*146097);
+        int yoe = (doe - doe/1460 + doe/36524 - doe/146096)/365;
+        int doy = doe - (365*yoe + yoe/4 - yoe/100);
+        int mp = (5*doy+2)/153;
+        int day = doy - (153*mp+2)/5 + 1;
+        int month = mp<10 ? mp+3 : mp-9;
+        long year = yoe + era*400 + (month<=2 ? 1 : 0);
+
+        buf.append(DAYS[(int)((days%7+11)%7)]).append(", ");
+        pad2(buf,day).append(' ').append(MONTHS[month-1]).append(' ');
+        if (0<=year && year<1000)
+            buf.append(year<10 ? "000" : year<100 ? "00" : "0");
+        buf.append(year).append(' ');
+        pad2(buf,secondOfDay/3600).append(':');
+        pad2(buf,secondOfDay/60%60).append(':');
+        pad2(buf,secondOfDay%60).append(" GMT");
+        return buf.toString();
+    }
+
+    private static StringBuilder pad2(StringBuilder buf, int n) {
+        return buf.append((char)('0'+n/10)).append((char)('0'+n%10));
+    }
+
+    /**
+     * Parses a date in any of the formats HTTP allows: RFC 1123 (<tt>Sun, 06 Nov 1994 08:49:37 GMT</tt>),
+     * RFC 850 (<tt>Sunday, 06-Nov-94 08:49:37 GMT</tt>), or asctime (<tt>Sun Nov  6 08:49:37 1994</tt>).
+     *
+     * @return
+     *      -1 if the value is null or not a valid date.
+     */
+    static long parse(@CheckForNull String value) {
+        if (value==null)
+            return -1;
+
+        // split into tokens at spaces, commas, and dashes, ignoring anything after ';',
+        // which some old browsers put there, like "; length=1234"
+        String[] tokens = new String[6];
+        int n = 0;
+        int start = -1;
+        for (int i=0; i<=value.length(); i++) {
+            char ch = i<value.length() ? value.charAt(i) : ';';
+            boolean separator = ch==' ' || ch==',' || ch=='-' || ch=='\t' || ch==';';
+            if (separator && start>=0) {
+                if (n==tokens.length)
+                    return -1;
+                tokens[n++] = value.substring(start,i);
+                start = -1;
+            } else if (!separator && start<0) {
+                start = i;
+            }
+            if (ch==';')
+                break;
+        }
+
+        String day, month, year, time;
+        if (n==6) {
+            // RFC 1123 or RFC 850
+            if (!tokens[5].equals("GMT") && !tokens[5].equals("UTC") && !tokens[5].equals("UT"))
+                return -1;
+            day = tokens[1];
+            month = tokens[2];
+            year = tokens[3];
+            time = tokens[4];
+        } else if (n==5) {
+            // asctime
+            month = tokens[1];
+            day = tokens[2];
+            time = tokens[3];
+            year = tokens[4];
+        } else {
+            return -1;
+        }
+
+        int d = parseNumber(day, 1, 2);
+        int m = -1;
+        for (int i=0; i<MONTHS.length; i++)
+            if (MONTHS[i].equalsIgnoreCase(month))
+                m = i+1;
+        int y = parseNumber(year, 2, 4);
+        if (year.length()==2 && y>=0)
+            y += y<70 ? 2000 : 1900;
+        if (d<1 || d>31 || m<0 || y<0 || time.length()!=8 || time.charAt(2)!=':' || time.charAt(5)!=':')
+            return -1;
+        int hh = parseNumber(time.substring(0,2), 2, 2);
+        int mm = parseNumber(time.substring(3,5), 2, 2);
+        int ss = parseNumber(time.substring(6,8), 2, 2);
+        if (hh<0 || hh>23 || mm<0 || mm>59 || ss<0 || ss>60)
+            return -1;
+
+        return ((daysFromCivil(y,m,d)*24 + hh)*60 + mm)*60000L + ss*1000L;
+    }
+
+    /**
+     * @return -1 unless the string is a decimal number of the given number of digits.
+     */
+    private static int parseNumber(String s, int minDigits, int maxDigits) {
+        if (s.length()<minDigits || s.length()>maxDigits)
+            return -1;
+        int r = 0;
+        for (int i=0; i<s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch<'0' || '9'<ch)
+                return -1;
+            r = r*10 + (ch-'0');
+        }
+        return r;
+    }
+
+    private static long daysFromCivil(long y, int m, int d) {
+        y -= m<=2 ? 1 : 0;
+        long era = (y>=0 ? y : y-399)/400;
+        int yoe = (int)(y-era*400);
+        int doy = (153*(m>2 ? m-3 : m+9) + 2)/5 + d-1;
+        int doe = yoe*365 + yoe/4 - yoe/100 + doy;
+        return era*146097 + doe - 719468;
+    }
+
+    private static final class Formatted {
+        final long second;
+        final String text;
+
+        Formatted(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    private static final int CACHE_SIZE = 256;
+
+    /**
+     * Recently formatted values, indexed by the lower bits of the second.
+     * Races between threads only lose entries, since {@link Formatted} is immutable.
+     */
+    private static final Formatted[] CACHE = new Formatted[CACHE_SIZE];
+
+    private static final String[] DAYS = {"Sun","Mon","Tue","Wed","Thu","Fri","Sat"};
+    private static final String[] MONTHS = {"Jan","Feb","Mar","Apr","May","Jun","Jul","Aug","Sep","Oct","Nov","Dec"};
+}
@@ -24,6 +24,8 @@ class KlassDescriptor<C> {
     public KlassDescriptor(Klass<C> klazz) {
         this.clazz = klazz;
         this.fields = klazz.getFields();
-        this.methods = new FunctionList(klazz.getFunctions());
+        List<Function> functions = klazz.getFunctions();
+        // share the list and its indices with ClassDescriptor, if that's where it came from
+        this.methods = functions instanceof FunctionList ? (FunctionList)functions : new FunctionList(functions);
     }
 }
@@ -67,6 +67,12 @@ public class MetaClass extends TearOffSupport {
 
     public final List<Dispatcher> dispatchers = new ArrayList<>();
 
+    /**
+     * {@link #dispatchers} indexed by the URL token they respond to.
+     * Rebuilt together with {@link #dispatchers}.
+     */
+    private volatile DispatcherIndex dispatcherIndex;
+
     /**
      * Base metaclass.
      * Note that <tt>baseClass.clazz==clazz.getSuperClass()</tt>
@@ -401,6 +407,21 @@ public class MetaClass extends TearOffSupport {
                 }
             });
         }
+
+        dispatcherIndex = new DispatcherIndex(dispatchers);
+    }
+
+    /**
+     * Returns the subset of {@link #dispatchers} that can possibly handle the request
+     * at the current position of the given tokens, in the order of preference.
+     *
+     * <p>
+     * {@link NameBasedDispatcher}s bound to names other than the next token are skipped,
+     * so that this can be looked up in a constant time regardless of the number of
+     * web methods and getters the class has.
+     */
+    /*package*/ Dispatcher[] getDispatchers(TokenList tokens) {
+        return dispatcherIndex.get(tokens);
     }
 
     /**
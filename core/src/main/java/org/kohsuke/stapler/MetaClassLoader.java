@@ -23,12 +23,17 @@
 
 package org.kohsuke.stapler;
 
-import java.util.Map;
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
 import java.io.File;
 import java.net.URLClassLoader;
 import java.net.URL;
 import java.net.MalformedURLException;
-import java.util.HashMap;
 
 /**
  * The stapler version of the {@link ClassLoader} object,
@@ -48,14 +53,15 @@ public class MetaClassLoader extends TearOffSupport {
     public static MetaClassLoader get(ClassLoader cl) {
         if(cl ==null)
             return null; // if no parent, delegate to the debug loader if available.
-        
-        synchronized(classMap) {
-            MetaClassLoader mc = classMap.get(cl);
-            if(mc==null) {
-                mc = new MetaClassLoader(cl);
-                classMap.put(cl,mc);
-            }
-            return mc;
+
+        MetaClassLoader mc = classMap.getIfPresent(cl);
+        if (mc!=null)   return mc;
+        try {
+            return classMap.getUnchecked(cl);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
         }
     }
 
@@ -65,11 +71,18 @@ public class MetaClassLoader extends TearOffSupport {
     public static MetaClassLoader debugLoader = null;
 
     /**
-     * All {@link MetaClass}es.
+     * All {@link MetaClassLoader}s.
      *
-     * Note that this permanently holds a strong reference to its key, i.e. is a memory leak.
+     * <p>
+     * Lookups don't lock. Entries are held strongly, so that each {@link ClassLoader} has only one
+     * {@link MetaClassLoader} and its tear-offs for as long as {@link MetaClass}es may refer to it.
+     * Building one builds the {@link MetaClassLoader} of the parent class loader first.
      */
-    private static final Map<ClassLoader,MetaClassLoader> classMap = new HashMap<ClassLoader,MetaClassLoader>();
+    private static final LoadingCache<ClassLoader,MetaClassLoader> classMap = CacheBuilder.newBuilder().build(new CacheLoader<ClassLoader,MetaClassLoader>() {
+        public MetaClassLoader load(ClassLoader cl) {
+            return new MetaClassLoader(cl);
+        }
+    });
 
     static {
         try {
@@ -3,6 +3,7 @@ package org.kohsuke.stapler;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
 /**
@@ -25,5 +26,15 @@ public final class MethodHandleFactory {
     }
 
 
+    public static MethodHandle getter(Field field) {
+        try {
+            field.setAccessible(true);
+
+            return LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw (Error)new IllegalAccessError("Protected field: "+field).initCause(e);
+        }
+    }
+
     private MethodHandleFactory() {}
 }
@@ -39,7 +39,6 @@ import org.apache.commons.fileupload.servlet.ServletFileUpload;
 import org.jvnet.tiger_types.Lister;
 import org.kohsuke.stapler.bind.BoundObjectTable;
 import org.kohsuke.stapler.lang.Klass;
-import org.kohsuke.stapler.lang.MethodRef;
 
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletContext;
@@ -47,21 +46,16 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
-import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
@@ -325,30 +319,20 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
             return false;
 
         // send out Last-Modified, or check If-Modified-Since
-        String since = getHeader("If-Modified-Since");
-        SimpleDateFormat format = Stapler.HTTP_DATE_FORMAT.get();
-        if(since!=null) {
-            try {
-                long ims = format.parse(since).getTime();
-                if(lastModified<ims+1000) {
-                    // +1000 because date header is second-precision and Java has milli-second precision
-                    rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                    return true;
-                }
-            } catch (NumberFormatException e) {
-                // just ignore and serve the content
-            } catch (ParseException e) {
-                // just ignore and serve the content
-            }
+        long ims = HttpDates.parse(getHeader("If-Modified-Since"));
+        if(ims!=-1 && lastModified<ims+1000) {
+            // +1000 because date header is second-precision and Java has milli-second precision
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return true;
         }
-        String tm = format.format(new Date(lastModified));
+        String tm = HttpDates.format(lastModified);
         rsp.setHeader("Last-Modified", tm);
         if(expiration==0) {
             // don't let browsers
             rsp.setHeader("Expires", tm);
         } else {
             // expire in "NOW+expiration" 
-            rsp.setHeader("Expires",format.format(new Date(new Date().getTime()+expiration)));
+            rsp.setHeader("Expires",HttpDates.format(System.currentTimeMillis()+expiration));
         }
         return false;
     }
@@ -409,7 +393,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
             return r;   // nothing
 
         try {
-            new ClassDescriptor(type).loadConstructorParamNames();
+            BindingDescriptor.get(type).getParameterNames();
             // use the designated constructor for databinding
             for( int i=0; i<len; i++ )
                 r.add(bindParameters(type,prefix,i));
@@ -442,14 +426,15 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     }
 
     public <T> T bindParameters(Class<T> type, String prefix, int index) {
-        String[] names = new ClassDescriptor(type).loadConstructorParamNames();
+        BindingDescriptor bd = BindingDescriptor.get(type);
+        String[] names = bd.getParameterNames();
 
         // the actual arguments to invoke the constructor with.
         Object[] args = new Object[names.length];
 
         // constructor
-        Constructor<T> c = findConstructor(type, names.length);
-        Class[] types = c.getParameterTypes();
+        Constructor<T> c = (Constructor<T>)bd.getConstructor();
+        Class[] types = bd.getParameterTypes();
 
         // convert parameters
         for( int i=0; i<names.length; i++ ) {
@@ -475,7 +460,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     }
 
     public Object bindJSON(Type type, Class erasure, Object json) {
-        return new TypePair(type,erasure).convertJSON(json);
+        return new TypePair(type,erasure).convertJSON(this,json);
     }
 
     public void bindJSON(Object bean, JSONObject src) {
@@ -486,7 +471,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                     continue;
 
                 try {
-                    fill(bean,key, type.convertJSON(src.get(key)));
+                    fill(bean,key, type.convertJSON(this,src.get(key)));
                 } catch (WrongTypeException e) {
                     throw new IllegalArgumentException(String.format("Error binding field %s: %s", key, e.getMessage()));
                 }
@@ -524,7 +509,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     }
 
 
-    private <T> T invokeConstructor(Constructor<T> c, Object[] args) {
+    /*package*/ static <T> T invokeConstructor(Constructor<T> c, Object[] args) {
         try {
             return c.newInstance(args);
         } catch (InstantiationException e) {
@@ -547,26 +532,6 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
         }
     }
 
-    private <T> Constructor<T> findConstructor(Class<T> type, int length) {
-        Constructor<?>[] ctrs = type.getConstructors();
-        // one with DataBoundConstructor is the most reliable
-        for (Constructor c : ctrs) {
-            if(c.getAnnotation(DataBoundConstructor.class)!=null) {
-                if(c.getParameterTypes().length!=length)
-                    throw new IllegalArgumentException(c+" has @DataBoundConstructor but it doesn't match with your .stapler file. Try clean rebuild");
-                return c;
-            }
-        }
-        // if not, maybe this was from @stapler-constructor,
-        // so look for the constructor with the expected argument length.
-        // this is not very reliable.
-        for (Constructor c : ctrs) {
-            if(c.getParameterTypes().length==length)
-                return c;
-        }
-        throw new IllegalArgumentException(type+" does not have a constructor with "+length+" arguments");
-    }
-
     private static void fill(Object bean, String key, Object value) {
         StringTokenizer tokens = new StringTokenizer(key);
         while(tokens.hasMoreTokens()) {
@@ -597,7 +562,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     /**
      * Information about the type.
      */
-    private final class TypePair {
+    static final class TypePair {
         final Type genericType;
         /**
          * Erasure of {@link #genericType}
@@ -616,12 +581,15 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
         /**
          * Converts the given JSON object (either {@link JSONObject}, {@link JSONArray}, or other primitive types
          * in JSON, to the type represented by the 'this' object.
+         *
+         * @param req
+         *      The request on whose behalf the conversion happens, which controls {@link BindInterceptor}s.
          */
-        public Object convertJSON(Object o) {
-            Object r = bindInterceptor.onConvert(genericType, type, o);
+        public Object convertJSON(RequestImpl req, Object o) {
+            Object r = req.bindInterceptor.onConvert(genericType, type, o);
             if (r!= BindInterceptor.DEFAULT)    return r; // taken over by the interceptor
 
-            for (BindInterceptor i : getWebApp().bindInterceptors) {
+            for (BindInterceptor i : req.getWebApp().bindInterceptors) {
                 r = i.onConvert(genericType, type, o);
                 if (r!= BindInterceptor.DEFAULT)    return r; // taken over by the interceptor
             }
@@ -664,7 +632,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                             // sub-type is specified in JSON.
                             // note that this can come from malicious clients, so we need to make sure we don't have security issues.
 
-                            ClassLoader cl = stapler.getWebApp().getClassLoader();
+                            ClassLoader cl = req.stapler.getWebApp().getClassLoader();
                             try {
                                 Class<?> subType = cl.loadClass(className);
                                 if(!actualType.isAssignableFrom(subType))
@@ -675,7 +643,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                             }
                         }
 
-                        return instantiate(actualType, j);
+                        return req.instantiate(actualType, j);
                     } catch (IllegalArgumentException e) {
                         throw new IllegalArgumentException("Failed to instantiate "+type+" from "+j,e);
                     }
@@ -684,7 +652,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                         // this object is a hash from class names to their parameters
                         // build them into a collection via Lister
 
-                        ClassLoader cl = stapler.getWebApp().getClassLoader();
+                        ClassLoader cl = req.stapler.getWebApp().getClassLoader();
                         for (Map.Entry<String,Object> e : (Set<Map.Entry<String,Object>>)j.entrySet()) {
                             Object v = e.getValue();
 
@@ -692,10 +660,10 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                             try {
                                 Class<?> itemType = cl.loadClass(className);
                                 if (v instanceof JSONObject) {
-                                    l.add(bindJSON(itemType, (JSONObject) v));
+                                    l.add(req.bindJSON(itemType, (JSONObject) v));
                                 }
                                 if (v instanceof JSONArray) {
-                                    for(Object i : bindJSONToList(itemType, (JSONArray) v))
+                                    for(Object i : req.bindJSONToList(itemType, (JSONArray) v))
                                         l.add(i);
                                 }
                             } catch (ClassNotFoundException e1) {
@@ -713,7 +681,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                         }
                     } else {
                         // only one value given to the collection
-                        l.add(new TypePair(l.itemGenericType,l.itemType).convertJSON(j));
+                        l.add(new TypePair(l.itemGenericType,l.itemType).convertJSON(req,j));
                     }
                     return l.toCollection();
                 }
@@ -724,7 +692,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                 JSONArray a = (JSONArray) o;
                 TypePair itemType = new TypePair(l.itemGenericType,l.itemType);
                 for (Object item : a)
-                    l.add(itemType.convertJSON(item));
+                    l.add(itemType.convertJSON(req,item));
                 return l.toCollection();
             }
 
@@ -751,7 +719,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     /**
      * Called after the actual type of the binding is figured out.
      */
-    private Object instantiate(Class actualType, JSONObject j) {
+    /*package*/ Object instantiate(Class actualType, JSONObject j) {
         Object r = bindInterceptor.instantiate(actualType,j);
         if (r!=BindInterceptor.DEFAULT) return r;
         for (BindInterceptor bi : getWebApp().bindInterceptors) {
@@ -761,26 +729,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
 
         if (actualType==JSONObject.class || actualType==JSON.class) return actualType.cast(j);
 
-        String[] names = new ClassDescriptor(actualType).loadConstructorParamNames();
-
-        // the actual arguments to invoke the constructor with.
-        Object[] args = new Object[names.length];
-
-        // constructor
-        Constructor c = findConstructor(actualType, names.length);
-        Class[] types = c.getParameterTypes();
-        Type[] genTypes = c.getGenericParameterTypes();
-
-        // convert parameters
-        for( int i=0; i<names.length; i++ ) {
-            try {
-                args[i] = bindJSON(genTypes[i],types[i],j.get(names[i]));
-            } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Failed to convert the "+names[i]+" parameter of the constructor "+c,e);
-            }
-        }
-
-        Object o = injectSetters(invokeConstructor(c, args), j, Arrays.asList(names));
+        Object o = BinderPlan.get(actualType).bind(this, j);
         o = bindResolve(o,j);
 
         return o;
@@ -797,90 +746,6 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
         return o;
     }
 
-    /**
-     * Performs {@link DataBoundSetter} injections.
-     *
-     * @param exclusions
-     *      Properties that are already injected through the constructor, thus not subject of the setter injection.
-     */
-    private <T> T injectSetters(T r, JSONObject j, Collection<String> exclusions) {
-        // try to assign rest of the properties
-        OUTER:
-        for (String key : (Set<String>)j.keySet()) {
-            if (!exclusions.contains(key)) {
-                try {
-                    // try field injection first
-                    for (Class c=r.getClass(); c!=null; c=c.getSuperclass()) {
-                        try {
-                            Field f = c.getDeclaredField(key);
-                            if (f.getAnnotation(DataBoundSetter.class)!=null) {
-                                f.setAccessible(true);
-                                f.set(r, bindJSON(f.getGenericType(), f.getType(), j.get(key)));
-                                continue OUTER;
-                            }
-                        } catch (NoSuchFieldException e) {
-                            // recurse into parents
-                        }
-                    }
-
-                    Method wm = findDataBoundSetter(r.getClass(), key);
-                    if (wm==null)   continue;
-
-                    Class<?>[] pt = wm.getParameterTypes();
-                    assert pt.length==1;
-
-                    // only invoking public methods for security reasons
-                    wm.invoke(r, bindJSON(wm.getGenericParameterTypes()[0], pt[0], j.get(key)));
-                } catch (IllegalAccessException e) {
-                    LOGGER.log(WARNING, "Cannot access property " + key + " of " + r.getClass(), e);
-                } catch (InvocationTargetException e) {
-                    LOGGER.log(WARNING, "Cannot access property " + key + " of " + r.getClass(), e);
-                }
-            }
-        }
-
-        invokePostConstruct(getWebApp().getMetaClass(r).getPostConstructMethods(), r);
-
-        return r;
-    }
-
-    private Method findDataBoundSetter(Class c, String name) {
-        // look for public setter that has the matching name
-        for ( ; c!=null; c=c.getSuperclass()) {
-            for (Method m : c.getDeclaredMethods()) {
-                if (!Modifier.isPublic(m.getModifiers())
-                 || !m.getName().startsWith("set")
-                 || m.getParameterTypes().length!=1
-                 || !m.isAnnotationPresent(DataBoundSetter.class))
-                    continue;
-
-                String propertyName = Introspector.decapitalize(m.getName().substring(3));
-                if (!name.equals(propertyName))
-                    continue;   // not the name we are looking for
-
-                return m;
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Invoke PostConstruct method from the base class to subtypes.
-     */
-    private void invokePostConstruct(SingleLinkedList<MethodRef> methods, Object r) {
-        if (methods.isEmpty())  return;
-
-        invokePostConstruct(methods.tail,r);
-        try {
-            methods.head.invoke(r);
-        } catch (InvocationTargetException e) {
-            throw new IllegalArgumentException("Unable to post-construct "+r,e);
-        } catch (IllegalAccessException e) {
-            throw (Error)new IllegalAccessError().initCause(e);
-        }
-
-    }
-
     /**
      * Gets the type of the field/property designate by the given name.
      */
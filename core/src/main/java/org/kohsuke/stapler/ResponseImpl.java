@@ -43,11 +43,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
 
-import com.jcraft.jzlib.GZIPOutputStream;
+import com.google.common.cache.Cache;
 import net.sf.json.JsonConfig;
 import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.ExposedBeanCache.Rendered;
 import org.kohsuke.stapler.compression.CompressionFilter;
-import org.kohsuke.stapler.compression.FilterServletOutputStream;
+import org.kohsuke.stapler.compression.CompressingServletOutputStream;
+import org.kohsuke.stapler.compression.CompressionPolicy;
 import org.kohsuke.stapler.export.DataWriter;
 import org.kohsuke.stapler.export.ExportConfig;
 import org.kohsuke.stapler.export.Flavor;
@@ -78,6 +80,12 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
      */
     private Object output=null;
 
+    /**
+     * The content type set so far, which {@link CompressionPolicy} decides on.
+     */
+    private String contentType;
+    private CompressingServletOutputStream compressing;
+
     public ResponseImpl(Stapler stapler, HttpServletResponse response) {
         super(response);
         this.stapler = stapler;
@@ -104,6 +112,14 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
         return (PrintWriter)output;
     }
 
+    @Override
+    public void setContentType(String type) {
+        super.setContentType(type);
+        contentType = type;
+        if (compressing!=null)
+            compressing.setContentType(type);
+    }
+
     private <T extends ServletOutputStream> T recordOutput(T obj) {
         this.output = obj;
         this.mode = OutputMode.BYTE;
@@ -239,34 +255,84 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
         String pad=null;
         Flavor flavor = config.getFlavor();
         setContentType(flavor.contentType);
-        Writer w = getCompressedWriter(req);
 
         if (flavor==Flavor.JSON || flavor==Flavor.JSONP) { // for compatibility reasons, accept JSON for JSONP as well.
             pad = req.getParameter("jsonp");
-            if(pad!=null) w.write(pad+'(');
         }
 
         TreePruner pruner;
         String tree = req.getParameter("tree");
+        String depthParam = req.getParameter("depth");
         if (tree != null) {
             try {
-                pruner = new NamedPathPruner(tree);
+                pruner = NamedPathPruner.of(tree);
             } catch (IllegalArgumentException x) {
                 throw new ServletException("Malformed tree expression: " + x, x);
             }
         } else {
             int depth = 0;
             try {
-                String s = req.getParameter("depth");
-                if (s != null) {
-                    depth = Integer.parseInt(s);
+                if (depthParam != null) {
+                    depth = Integer.parseInt(depthParam);
                 }
             } catch (NumberFormatException e) {
                 throw new ServletException("Depth parameter must be a number");
             }
             pruner = new ByDepth(1 - depth);
         }
-        DataWriter dw = flavor.createDataWriter(exposedBean, w, config);
+
+        String etag = ExposedBeanCache.etag(exposedBean, config, tree, depthParam, pad);
+        if (etag!=null) {
+            setHeader("ETag", etag);
+            addHeader("Vary", "Accept-Encoding");   // on 304 too, just like the response it stands for
+            if (ExposedBeanCache.matches(req.getHeader("If-None-Match"), etag)) {
+                setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            Cache<String,Rendered> cache = ExposedBeanCache.RENDERED;
+            if (cache!=null) {
+                String key = ExposedBeanCache.key(req, etag);
+                Rendered r = cache.getIfPresent(key);
+                if (r==null) {
+                    ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                    writeExposedBean(exposedBean, config, pruner, pad, null, buf);
+                    r = new Rendered(buf.toByteArray());
+                    cache.put(key, r);
+                }
+                serveRendered(req, r);
+                return;
+            }
+        }
+
+        if (config.isStreaming()) {
+            OutputStream out = getCompressedOutputStream(req);
+            writeExposedBean(exposedBean, config, pruner, pad, null, out);
+            out.close();
+        } else {
+            Writer w = getCompressedWriter(req);
+            writeExposedBean(exposedBean, config, pruner, pad, w, null);
+            w.close();
+        }
+    }
+
+    /**
+     * Writes the exposed bean either to {@link Writer}, or if that's null, to {@link OutputStream} in UTF-8.
+     */
+    private static void writeExposedBean(Object exposedBean, ExportConfig config, TreePruner pruner, String pad, Writer w, OutputStream out) throws IOException {
+        Flavor flavor = config.getFlavor();
+        DataWriter dw = null;
+        if (w==null) {
+            dw = flavor.createDataWriter(exposedBean, out, config);
+            if (dw==null) {
+                // this flavor can only be written as characters
+                w = new OutputStreamWriter(out, "UTF-8");
+            }
+        }
+        if (dw==null)
+            dw = flavor.createDataWriter(exposedBean, w, config);
+
+        if(pad!=null) write(w, out, pad+'(');
         if (exposedBean instanceof Object[]) {
             // TODO: extend the contract of DataWriter to capture this
             // TODO: make this work with XML flavor (or at least reject this better)
@@ -278,11 +344,36 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
             writeOne(pruner, dw, exposedBean);
         }
 
-        if(pad!=null) w.write(')');
-        w.close();
+        if(pad!=null) write(w, out, ")");
+        if (w!=null)    w.flush();
+    }
+
+    /**
+     * Sends a response rendered earlier, using its gzipped form if the client accepts it.
+     */
+    private void serveRendered(HttpServletRequest req, Rendered r) throws IOException {
+        if (mode==null && !acceptsGzip(req) && !CompressionFilter.has(req)) {
+            setHeader("Content-Encoding","gzip");
+            setContentLength(r.gzipped.length);
+            OutputStream out = getOutputStream();
+            out.write(r.gzipped);
+            out.close();
+        } else {
+            OutputStream out = getCompressedOutputStream(req);
+            out.write(r.data);
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a string to either {@link Writer} or, if that's null, {@link OutputStream} in UTF-8.
+     */
+    private static void write(Writer w, OutputStream out, String s) throws IOException {
+        if (w!=null)    w.write(s);
+        else            out.write(s.getBytes("UTF-8"));
     }
 
-    private void writeOne(TreePruner pruner, DataWriter dw, Object item) throws IOException {
+    private static void writeOne(TreePruner pruner, DataWriter dw, Object item) throws IOException {
         Model p = MODEL_BUILDER.get(item.getClass());
         p.writeTo(item, pruner, dw);
     }
@@ -304,8 +395,7 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
 
         // CompressionFilter not available, so do it on our own.
         // see CompressionFilter for why this is not desirable
-        setHeader("Content-Encoding","gzip");
-        return recordOutput(new FilterServletOutputStream(new GZIPOutputStream(super.getOutputStream())));
+        return recordOutput(compress());
     }
 
     public Writer getCompressedWriter(HttpServletRequest req) throws IOException {
@@ -320,8 +410,15 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
 
         // CompressionFilter not available, so do it on our own.
         // see CompressionFilter for why this is not desirable
-        setHeader("Content-Encoding","gzip");
-        return recordOutput(new PrintWriter(new OutputStreamWriter(new GZIPOutputStream(super.getOutputStream()),getCharacterEncoding())));
+        return recordOutput(new PrintWriter(new OutputStreamWriter(compress(),getCharacterEncoding())));
+    }
+
+    /**
+     * Creates the stream that sets Content-Encoding and compresses the response, if {@link CompressionPolicy} says so.
+     */
+    private CompressingServletOutputStream compress() {
+        compressing = CompressionPolicy.get(stapler.getServletContext()).compress(response, contentType);
+        return compressing;
     }
 
     public int reverseProxyTo(URL url, StaplerRequest req) throws IOException {
@@ -0,0 +1,117 @@
+package org.kohsuke.stapler;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import org.kohsuke.stapler.jsr269.RoutingIndexProcessor;
+
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Parameter names of the web methods of a class, as recorded at compile time by {@link RoutingIndexProcessor}.
+ *
+ * <p>
+ * When present, this saves {@link ClassDescriptor#loadParameterNames(Method)} from parsing the class file
+ * once for every method that a {@link MetaClass} binds.
+ */
+final class RoutingIndex {
+    private final Properties parameterNames;
+
+    private RoutingIndex(Properties parameterNames) {
+        this.parameterNames = parameterNames;
+    }
+
+    /**
+     * Returns the recorded parameter names of the given method, or null if they aren't recorded.
+     */
+    @CheckForNull String[] getParameterNames(Method m) {
+        if (parameterNames==null)
+            return null;
+        String v = parameterNames.getProperty(key(m));
+        if (v==null)
+            return null;
+        String[] names = v.split(",");
+        if (names.length!=m.getParameterTypes().length)
+            return null;    // out of date
+        return names;
+    }
+
+    /**
+     * The key under which {@link RoutingIndexProcessor} records the given method.
+     */
+    static String key(Method m) {
+        StringBuilder buf = new StringBuilder(m.getName()).append('(');
+        Class<?>[] params = m.getParameterTypes();
+        for (int i=0; i<params.length; i++) {
+            if (i>0)    buf.append(',');
+            appendTypeName(params[i], buf);
+        }
+        return buf.append(')').toString();
+    }
+
+    private static void appendTypeName(Class<?> c, StringBuilder buf) {
+        if (c.isArray()) {
+            appendTypeName(c.getComponentType(), buf);
+            buf.append("[]");
+        } else {
+            buf.append(c.getName());
+        }
+    }
+
+    private static RoutingIndex load(Class<?> c) {
+        ClassLoader cl = c.getClassLoader();
+        if (cl==null)
+            return NONE;
+        URL url = cl.getResource("META-INF/stapler/routes/" + c.getName() + ".stapler");
+        if (url==null)
+            return NONE;
+        try {
+            InputStream in = url.openStream();
+            try {
+                Properties p = new Properties();
+                p.load(in);
+                return new RoutingIndex(p);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(WARNING, "Failed to load "+url, e);
+            return NONE;
+        }
+    }
+
+    static RoutingIndex get(Class<?> c) {
+        try {
+            return CACHE.getUnchecked(c);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        }
+    }
+
+    /**
+     * Discards all the cached information, for example when classes are reloaded.
+     */
+    static void clearCache() {
+        CACHE.invalidateAll();
+    }
+
+    private static final RoutingIndex NONE = new RoutingIndex(null);
+
+    private static final LoadingCache<Class<?>,RoutingIndex> CACHE = CacheBuilder.newBuilder().weakKeys().build(new CacheLoader<Class<?>,RoutingIndex>() {
+        public RoutingIndex load(Class<?> type) {
+            return RoutingIndex.load(type);
+        }
+    });
+
+    private static final Logger LOGGER = Logger.getLogger(RoutingIndex.class.getName());
+}
@@ -23,6 +23,8 @@
 
 package org.kohsuke.stapler;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import net.sf.json.JSONObject;
 import org.apache.commons.beanutils.ConversionException;
 import org.apache.commons.beanutils.ConvertUtils;
@@ -34,7 +36,9 @@ import org.apache.commons.beanutils.converters.IntegerConverter;
 import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.bind.BoundObjectTable;
+import org.kohsuke.stapler.compression.CompressionPolicy;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -51,6 +55,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.JarURLConnection;
@@ -59,8 +64,9 @@ import java.net.SocketException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -74,11 +80,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
-import java.util.TimeZone;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static javax.servlet.http.HttpServletResponse.*;
 import static org.kohsuke.stapler.Dispatcher.*;
@@ -107,6 +112,11 @@ public class Stapler extends HttpServlet {
      */
     private volatile Map<String,URL> resourcePaths;
 
+    /**
+     * Static resources served from {@link #resourcePaths}, or null if disabled.
+     */
+    private final StaticResourceCache staticResources = StaticResourceCache.create();
+
     /**
      * Temporarily updates the thread name to reflect the request being processed.
      * On by default for convenience, but for webapps that use filters, use
@@ -140,6 +150,10 @@ public class Stapler extends HttpServlet {
      * Rebuild the internal cache for static resources.
      */
     public void buildResourcePaths() {
+        if (staticResources!=null)
+            staticResources.clear();
+        resourcePathLocaleSelector.clear();
+        urlLocaleSelector.clear();
         try {
             if (Boolean.getBoolean(Stapler.class.getName()+".noResourcePathCache")) {
                 resourcePaths = null;
@@ -220,13 +234,25 @@ public class Stapler extends HttpServlet {
                 // also note that Windows allows "/WEB-INF./" to refer to refer to this directory.
                 // here we also reject that (by rejecting /WEB-INF*)
 
-                OpenConnection con = openResourcePathByLocale(req,servletPath);
-                if(con!=null) {
-                    long expires = MetaClass.NO_CACHE ? 0 : 24L * 60 * 60 * 1000; /*1 day*/
-                    if(staticLink)
-                        expires*=365;   // static resources are unique, so we can set a long expiration date
-                    if(serveStaticResource(req, new ResponseImpl(this, rsp), con, expires))
-                        return; // done
+                long expires = MetaClass.NO_CACHE ? 0 : 24L * 60 * 60 * 1000; /*1 day*/
+                if(staticLink)
+                    expires*=365;   // static resources are unique, so we can set a long expiration date
+
+                if (staticResources!=null && resourcePaths!=null && !MetaClass.NO_CACHE) {
+                    StaticResourceCache.Entry e = findStaticResourceByLocale(req,servletPath);
+                    if (e!=null) {
+                        if (serveStaticResource(req, new ResponseImpl(this, rsp), e, expires))
+                            return;
+                        // too big to keep in memory
+                        if(serveStaticResource(req, new ResponseImpl(this, rsp), openURL(e.url), expires))
+                            return; // done
+                    }
+                } else {
+                    OpenConnection con = openResourcePathByLocale(req,servletPath);
+                    if(con!=null) {
+                        if(serveStaticResource(req, new ResponseImpl(this, rsp), con, expires))
+                            return; // done
+                    }
                 }
             }
 
@@ -341,26 +367,64 @@ public class Stapler extends HttpServlet {
          *      Used as a fallback.
          */
         OpenConnection open(String path, Locale locale, URL fallback) throws IOException {
+            return select(path, locale, fallback, opener);
+        }
+
+        /**
+         * Same as {@link #open(String, Locale, URL)}, except that {@link Probe} determines
+         * which resources exist, and what to return for them.
+         */
+        <T> T select(String path, Locale locale, URL fallback, Probe<T> probe) throws IOException {
             String s = path;
             int idx = s.lastIndexOf('.');
             if(idx<0)   // no file extension, so no locale switch available
-                return openURL(fallback);
+                return probe.probe(fallback);
             String base = s.substring(0,idx);
             String ext = s.substring(idx);
             if(ext.indexOf('/')>=0) // the '.' we found was not an extension separator
-                return openURL(fallback);
-
-            OpenConnection con;
+                return probe.probe(fallback);
+
+            String key = null;
+            if (!MetaClass.NO_CACHE) {
+                key = locale.toString() + ':' + path;
+                Object v = variants.getIfPresent(key);
+                if (v!=null) {
+                    T con = probe.probe(v==NO_VARIANT ? fallback : (URL)v);
+                    if (con!=null)  return con;
+                    // the resource went away. look again
+                }
+            }
 
             // try locale specific resources first.
-            con = openURL(map(base + '_' + locale.getLanguage() + '_' + locale.getCountry() + '_' + locale.getVariant() + ext));
-            if(con!=null)   return con;
-            con = openURL(map(base+'_'+ locale.getLanguage()+'_'+ locale.getCountry()+ext));
-            if(con!=null)   return con;
-            con = openURL(map(base+'_'+ locale.getLanguage()+ext));
-            if(con!=null)   return con;
+            String[] candidates = {
+                base + '_' + locale.getLanguage() + '_' + locale.getCountry() + '_' + locale.getVariant() + ext,
+                base+'_'+ locale.getLanguage()+'_'+ locale.getCountry()+ext,
+                base+'_'+ locale.getLanguage()+ext
+            };
+            for (String c : candidates) {
+                URL url = map(c);
+                T con = probe.probe(url);
+                if(con!=null) {
+                    if (key!=null)  variants.put(key,url);
+                    return con;
+                }
+            }
             // default
-            return openURL(fallback);
+            T con = probe.probe(fallback);
+            if (con!=null && key!=null)
+                variants.put(key,NO_VARIANT);
+            return con;
+        }
+
+        /**
+         * Which resource {@link #select(String, Locale, URL, Probe)} found for the given locale and path,
+         * as {@code locale+':'+path}. Either the {@link URL} of the localized resource, or {@link #NO_VARIANT}
+         * if there's none and the fallback was used. Cleared by {@link Stapler#buildResourcePaths()}.
+         */
+        private final Cache<String,Object> variants = CacheBuilder.newBuilder().maximumSize(VARIANT_CACHE_SIZE).build();
+
+        void clear() {
+            variants.invalidateAll();
         }
 
         /**
@@ -369,6 +433,76 @@ public class Stapler extends HttpServlet {
         abstract URL map(String path) throws IOException;
     }
 
+    private static final Object NO_VARIANT = new Object();
+
+    private static final int VARIANT_CACHE_SIZE = Integer.getInteger(Stapler.class.getName()+".localeVariantCacheSize", 4096);
+
+    /**
+     * Checks if a resource exists, for {@link LocaleDrivenResourceSelector}.
+     */
+    private interface Probe<T> {
+        /**
+         * @param url
+         *      null if the resource doesn't exist.
+         * @return
+         *      null if the resource doesn't exist.
+         */
+        @CheckForNull T probe(@CheckForNull URL url) throws IOException;
+    }
+
+    private final Probe<OpenConnection> opener = new Probe<OpenConnection>() {
+        public OpenConnection probe(URL url) {
+            return openURL(url);
+        }
+    };
+
+    private final Probe<StaticResourceCache.Entry> cachedStaticResource = new Probe<StaticResourceCache.Entry>() {
+        public StaticResourceCache.Entry probe(final URL url) throws IOException {
+            if (url==null)  return null;
+            StaticResourceCache.Entry e = staticResources.get(url, staticResourceLoader(url));
+            return e.exists ? e : null;
+        }
+    };
+
+    private Callable<StaticResourceCache.Entry> staticResourceLoader(final URL url) {
+        return new Callable<StaticResourceCache.Entry>() {
+            public StaticResourceCache.Entry call() throws IOException {
+                return loadStaticResource(url);
+            }
+        };
+    }
+
+    /**
+     * Finds the static resource from {@link #staticResources}.
+     */
+    private StaticResourceCache.Entry findStaticResourceByLocale(HttpServletRequest req, String resourcePath) throws IOException {
+        URL url = getResource(resourcePath);
+        if(url==null)   return null;
+        return resourcePathLocaleSelector.select(resourcePath,req.getLocale(),url,cachedStaticResource);
+    }
+
+    /**
+     * Opens the resource to find out what {@link StaticResourceCache} needs to know.
+     */
+    private StaticResourceCache.Entry loadStaticResource(URL url) throws IOException {
+        OpenConnection con = openURL(url);
+        if (con==null)
+            return StaticResourceCache.Entry.missing(url);
+        try {
+            File f = toFile(url);
+            long length = f!=null && f.isFile() ? f.length() : con.connection.getContentLength();
+            String mimeType = getMimeType(url.toString());
+            byte[] data = null;
+            if (length>=0 && length<=StaticResourceCache.MAX_CONTENT_SIZE) {
+                data = IOUtils.toByteArray(con.stream);
+                length = data.length;
+            }
+            return new StaticResourceCache.Entry(url, length, con.getLastModified(), mimeType, data, isText(mimeType, url.toString()));
+        } finally {
+            con.close();
+        }
+    }
+
     private final LocaleDrivenResourceSelector resourcePathLocaleSelector = new LocaleDrivenResourceSelector() {
         @Override
         URL map(String path) throws IOException {
@@ -405,11 +539,22 @@ public class Stapler extends HttpServlet {
     boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, OpenConnection con, long expiration) throws IOException {
         if (con == null) return false;
         try {
-            return serveStaticResource(req, rsp, con.stream,
+            URL url = con.connection.getURL();
+            if (staticResources!=null && !MetaClass.NO_CACHE && isText(getMimeType(url.toString()), url.toString())) {
+                // text resources are worth serving compressed without compressing them every time
+                StaticResourceCache.Entry e = staticResources.get(url, con.getLastModified(), staticResourceLoader(url));
+                if (serveStaticResource(req, rsp, e, expiration))
+                    return true;
+            }
+
+            File f = toFile(url);
+            if (f!=null && !f.isFile())
+                f = null;   // not something we can read directly
+            return serveStaticResource(req, rsp, con.stream, f,
                     con.getLastModified(),
                     expiration,
-                    con.connection.getContentLength(),
-                    con.connection.getURL().toString());
+                    f!=null ? f.length() : con.connection.getContentLength(),
+                    url.toString());
         } finally {
             con.close();
         }
@@ -484,40 +629,42 @@ public class Stapler extends HttpServlet {
      *      if the resource doesn't exist.
      */
     boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, InputStream in, long lastModified, long expiration, long contentLength, String fileName) throws IOException {
+        return serveStaticResource(req, rsp, in, null, lastModified, expiration, contentLength, fileName);
+    }
+
+    /**
+     * Serves a static resource, which may be backed by a file.
+     *
+     * @param file
+     *      If non-null, the file that has the same contents as {@code in}. The contents are then read
+     *      from this file directly instead of {@code in}, unless the response is compressed.
+     */
+    private boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, InputStream in, @CheckForNull File file, long lastModified, long expiration, long contentLength, String fileName) throws IOException {
         try {
-            {// send out Last-Modified, or check If-Modified-Since
-                if(lastModified!=0) {
-                    String since = req.getHeader("If-Modified-Since");
-                    SimpleDateFormat format = HTTP_DATE_FORMAT.get();
-                    if(since!=null) {
-                        try {
-                            long ims = format.parse(since).getTime();
-                            if(lastModified<ims+1000) {
-                                // +1000 because date header is second-precision and Java has milli-second precision
-                                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                                return true;
-                            }
-                        } catch (ParseException e) {
-                            // just ignore and serve the content
-                        } catch (NumberFormatException e) {
-                            // trying to locate a bug with Jetty
-                            getServletContext().log("Error parsing ["+since+"]",e);
-                            throw e;
-                        }
-                    }
+            String mimeType = getMimeType(fileName);
+            String range = req.getHeader("Range");
 
-                    String lastModifiedStr = format.format(new Date(lastModified));
-                    rsp.setHeader("Last-Modified", lastModifiedStr);
-                    if(expiration<=0)
-                        rsp.setHeader("Expires",lastModifiedStr);
-                    else
-                        rsp.setHeader("Expires",format.format(new Date(new Date().getTime()+expiration)));
-                }
+            // Need to duplicate this logic from ResponseImpl.getCompressedOutputStream,
+            // since we want to set content length if we are not using encoding.
+            // Ranges are of the contents as is, so only whole responses are compressed.
+            // Also ask CompressionPolicy up front, so that the ETag tells apart only what really gets compressed.
+            boolean text = isText(mimeType, fileName);
+            CompressionPolicy policy = CompressionPolicy.get(getServletContext());
+            boolean compress = range==null && text && acceptsGzip(req) && policy.isCompressible(mimeType)
+                    && (contentLength<0 || contentLength>policy.getMinSize());
+
+            String etag = null;
+            if (lastModified!=0 && contentLength>=0) {
+                etag = StaticResourceCache.etag(lastModified, contentLength);
+                if (compress)   // compressed on the fly, so not necessarily the same bytes every time
+                    etag = "W/"+withEncoding(etag,"gzip");
             }
+            if (text)   // 304 responses need to vary just like the ones they stand for
+                rsp.setHeader("Vary","Accept-Encoding");
+            if (checkPreconditions(req, rsp, etag, lastModified, expiration))
+                return true;
 
             rsp.setHeader("Accept-Ranges","bytes"); // advertize that we support the range header
-
-            String mimeType = getMimeType(fileName);
             rsp.setContentType(mimeType);
 
             // use nosniff to enforce the content type we are setting above, instead of letting browser
@@ -525,64 +672,35 @@ public class Stapler extends HttpServlet {
             // a comprehensive discussion on this topic
             rsp.setHeader("X-Content-Type-Options","nosniff");
 
-            int idx = fileName.lastIndexOf('.');
-            String ext = fileName.substring(idx+1);
-
-            OutputStream out = null;
-            if(mimeType.startsWith("text/") || TEXT_FILES.contains(ext)) {
-                // Need to duplicate this logic from ResponseImpl.getCompressedOutputStream,
-                // since we want to set content length if we are not using encoding.
-                String acceptEncoding = req.getHeader("Accept-Encoding");
-                if (acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1) {
-                    // with gzip compression, Content-Length header needs to indicate the # of bytes after compression,
-                    // so we can't compute it upfront.
-                    out = rsp.getCompressedOutputStream(req);
-                }
-            }
-
-            // somewhat limited implementation of the partial GET
-            String range = req.getHeader("Range");
-            if(range!=null && contentLength!=-1) {// I'm lazy and only implementing this for known content length case
-                if(range.startsWith("bytes=")) {
-                    range = range.substring(6);
-                    Matcher m = RANGE_SPEC.matcher(range);
-                    if(m.matches()) {
-                        long s = Long.valueOf(m.group(1));
-                        long e = m.group(2).length()>0
-                                ? Long.valueOf(m.group(2))+1 //range set is inclusive
-                                : contentLength; // unspecified value means "all the way to the end"
-                        e = Math.min(e,contentLength);
-
-                        // ritual for responding to a partial GET
-                        rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-                        rsp.setHeader("Content-Range","bytes "+s+"-"+(e-1)+'/'+contentLength); // end is inclusive.
-
-                        // prepare to send the partial content
-                        DataInputStream dis = new DataInputStream(in);
-                        long toSkip = s, thisSkip;
-                        while (toSkip > 0 && (thisSkip = dis.skipBytes((int)Math.min(toSkip, Integer.MAX_VALUE))) > 0)
-                            toSkip -= thisSkip;
-                        if (toSkip > 0)
-                            throw new IOException(
-                                "skipBytes failure (" + toSkip + " of " + s + " bytes unskipped)");
-                        in = new TruncatedInputStream(in,e-s);
-                        contentLength = Math.min(e-s,contentLength);
-                    }
-                    // if the Range header doesn't look like what we can handle,
-                    // pretend as if we didn't understand it, instead of doing a proper error reporting
+            if (range!=null && contentLength!=-1) {// ranges need the content length
+                List<ByteRange> ranges = ByteRange.parse(range, contentLength);
+                if (ranges!=null && isRangeCurrent(req, etag, lastModified)) {
+                    sendRanges(rsp, ranges, contentLength, mimeType, file!=null ? rangesOf(file) : rangesOf(in));
+                    return true;
                 }
+                // if the Range header doesn't look like what we can handle, or the resource has changed,
+                // pretend as if we didn't see it and send everything
             }
 
-            if (out == null) {
+            OutputStream out;
+            if (compress) {
+                // with gzip compression, Content-Length header needs to indicate the # of bytes after compression,
+                // so we can't compute it upfront.
+                out = rsp.getCompressedOutputStream(req);
+            } else {
                 if(contentLength!=-1)
                     rsp.setHeader("Content-Length", Long.toString(contentLength));
                 out = rsp.getOutputStream();
             }
 
-            byte[] buf = new byte[1024];
-            int len;
-            while((len=in.read(buf))>0)
-                out.write(buf,0,len);
+            if (file!=null && !compress) {
+                copy(file, 0, contentLength, out);
+            } else {
+                byte[] buf = new byte[1024];
+                int len;
+                while((len=in.read(buf))>0)
+                    out.write(buf,0,len);
+            }
             out.close();
             return true;
         } finally {
@@ -591,9 +709,363 @@ public class Stapler extends HttpServlet {
     }
 
     /**
-     * Strings like "5-300", "0-900", or "100-"
+     * Serves a static resource known to {@link StaticResourceCache}.
+     *
+     * <p>
+     * Text resources are sent compressed to the clients that accept it, preferring precompressed siblings
+     * like <tt>foo.js.gz</tt> that are shipped next to them, and otherwise the contents gzipped once in memory.
+     * Either way, the response has the Content-Length.
+     *
+     * @return
+     *      false without sending anything if the resource is too big to be kept in memory
+     *      and has no precompressed sibling to send instead, so it needs to be streamed.
+     */
+    private boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, StaticResourceCache.Entry e, long expiration) throws IOException {
+        if (!e.exists)  return false;
+
+        String range = req.getHeader("Range");
+        byte[] body = e.data;
+        String encoding = null;
+        String etag = e.etag;
+        OpenConnection encoded = null;  // precompressed sibling that's too big to be kept in memory
+        long encodedLength = -1;
+        if (e.compressible && range==null) {
+            for (String[] p : PRECOMPRESSED) {
+                if (!accepts(req,p[0])) continue;
+                StaticResourceCache.Entry s = findPrecompressed(e.url,p[1]);
+                if (s==null)    continue;
+                if (s.data==null) {
+                    encoded = openURL(s.url);
+                    if (encoded==null)  continue;   // went away
+                    encodedLength = s.length;
+                }
+                body = s.data;
+                encoding = p[0];
+                etag = withEncoding(s.etag,encoding);
+                break;
+            }
+            if (encoding==null && e.gzipped!=null && accepts(req,"gzip")) {
+                body = e.gzipped;
+                encoding = "gzip";
+                etag = withEncoding(e.etag,encoding);
+            }
+        }
+        if (body==null && encoded==null)
+            return false;
+
+        try {
+            // 304 responses need to vary just like the ones they stand for
+            if (e.compressible)
+                rsp.setHeader("Vary","Accept-Encoding");
+            if (checkPreconditions(req, rsp, etag, e.lastModified, expiration))
+                return true;
+
+            rsp.setHeader("Accept-Ranges","bytes"); // advertize that we support the range header
+            rsp.setContentType(e.mimeType);
+            rsp.setHeader("X-Content-Type-Options","nosniff");
+            if (encoding!=null)
+                rsp.setHeader("Content-Encoding",encoding);
+
+            if (encoded!=null) {
+                if (encodedLength>=0)
+                    rsp.setHeader("Content-Length", Long.toString(encodedLength));
+                OutputStream out = rsp.getOutputStream();
+                IOUtils.copy(encoded.stream, out);
+                out.close();
+                return true;
+            }
+        } finally {
+            if (encoded!=null)
+                encoded.close();
+        }
+
+        if (range!=null) {
+            List<ByteRange> ranges = ByteRange.parse(range, body.length);
+            if (ranges!=null && isRangeCurrent(req, etag, e.lastModified)) {
+                sendRanges(rsp, ranges, body.length, e.mimeType, rangesOf(body));
+                return true;
+            }
+        }
+
+        rsp.setHeader("Content-Length", Integer.toString(body.length));
+        OutputStream out = rsp.getOutputStream();
+        out.write(body);
+        out.close();
+        return true;
+    }
+
+    /**
+     * Finds the precompressed sibling of a static resource, like <tt>foo.js.gz</tt> for <tt>foo.js</tt>.
+     *
+     * @return null if there's none.
+     */
+    private @CheckForNull StaticResourceCache.Entry findPrecompressed(URL url, String suffix) throws IOException {
+        String path = url.getPath();
+        URL sibling = new URL(url, path.substring(path.lastIndexOf('/')+1)+suffix);
+        StaticResourceCache.Entry s = staticResources.get(sibling, staticResourceLoader(sibling));
+        return s.exists ? s : null;
+    }
+
+    /**
+     * Content codings of the precompressed siblings of static resources we look for, and their file extensions,
+     * in the order of preference.
+     */
+    private static final String[][] PRECOMPRESSED = {{"br",".br"},{"gzip",".gz"}};
+
+    /**
+     * Evaluates the conditional request headers in the order of RFC 7232 section 6,
+     * and sends out the validators of the representation and Expires.
+     *
+     * @param etag
+     *      The entity tag of the representation to be sent, or null if it has none.
+     * @return
+     *      true if the response has been completed, as 304 Not Modified or 412 Precondition Failed.
+     */
+    private boolean checkPreconditions(HttpServletRequest req, StaplerResponse rsp, @CheckForNull String etag, long lastModified, long expiration) {
+        String ifMatch = req.getHeader("If-Match");
+        if (ifMatch!=null) {
+            if (!matchesETag(ifMatch, etag, true)) {
+                rsp.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+                return true;
+            }
+        } else if (lastModified!=0) {
+            long since = HttpDates.parse(req.getHeader("If-Unmodified-Since"));
+            if (since!=-1 && lastModified>=since+1000) {
+                rsp.setStatus(HttpServletResponse.SC_PRECONDITION_FAILED);
+                return true;
+            }
+        }
+
+        if (etag!=null)
+            rsp.setHeader("ETag", etag);
+        String ifNoneMatch = req.getHeader("If-None-Match");
+        if (ifNoneMatch!=null) {
+            if (matchesETag(ifNoneMatch, etag, false)) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+            // If-Modified-Since is ignored in favor of If-None-Match
+            return checkLastModified(req, rsp, lastModified, expiration, false);
+        }
+        return checkLastModified(req, rsp, lastModified, expiration, true);
+    }
+
+    /**
+     * Sends out Last-Modified and Expires, or responds to If-Modified-Since.
+     *
+     * @param ifModifiedSince
+     *      false to ignore If-Modified-Since.
+     * @return
+     *      true if the response has been completed as 304 Not Modified.
+     */
+    private boolean checkLastModified(HttpServletRequest req, StaplerResponse rsp, long lastModified, long expiration, boolean ifModifiedSince) {
+        if(lastModified!=0) {
+            long ims = ifModifiedSince ? HttpDates.parse(req.getHeader("If-Modified-Since")) : -1;
+            // +1000 because date header is second-precision and Java has milli-second precision
+            if(ims!=-1 && lastModified<ims+1000) {
+                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return true;
+            }
+
+            String lastModifiedStr = HttpDates.format(lastModified);
+            rsp.setHeader("Last-Modified", lastModifiedStr);
+            if(expiration<=0)
+                rsp.setHeader("Expires",lastModifiedStr);
+            else
+                rsp.setHeader("Expires",HttpDates.format(System.currentTimeMillis()+expiration));
+        }
+        return false;
+    }
+
+    /**
+     * Is this a text resource, which is worth compressing?
+     */
+    private static boolean isText(String mimeType, String fileName) {
+        int idx = fileName.lastIndexOf('.');
+        String ext = fileName.substring(idx+1);
+        return mimeType.startsWith("text/") || TEXT_FILES.contains(ext);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest req) {
+        return accepts(req,"gzip");
+    }
+
+    private static boolean accepts(HttpServletRequest req, String encoding) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.indexOf(encoding) != -1;
+    }
+
+    /**
+     * Sends the given portion of a file.
+     *
+     * <p>
+     * The servlet API doesn't give us the socket channel, so {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+     * wouldn't avoid the copy. Instead, this reads straight from the file channel at the given position
+     * in large chunks, without going through {@link URLConnection} streams or skipping over the data before a range.
+     */
+    private static void copy(File file, long position, long count, OutputStream out) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file,"r");
+        try {
+            FileChannel ch = raf.getChannel();
+            byte[] buf = new byte[(int)Math.min(FILE_BUFFER_SIZE, Math.max(count,1))];
+            ByteBuffer bb = ByteBuffer.wrap(buf);
+            while (count>0) {
+                bb.clear();
+                bb.limit((int)Math.min(buf.length,count));
+                int len = ch.read(bb,position);
+                if (len<0)  break;  // the file got shorter
+                out.write(buf,0,len);
+                position += len;
+                count -= len;
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static final int FILE_BUFFER_SIZE = 64*1024;
+
+    /**
+     * Does the value of the <tt>If-Match</tt> or <tt>If-None-Match</tt> header match the entity tag?
+     *
+     * @param strong
+     *      true for the strong comparison of RFC 7232 section 2.3.2, where weak tags never match.
+     */
+    private static boolean matchesETag(String header, @CheckForNull String etag, boolean strong) {
+        for (String t : header.split(",")) {
+            t = t.trim();
+            if (t.equals("*"))
+                return true;
+            if (etag==null)
+                continue;
+            if (strong) {
+                if (!etag.startsWith("W/") && t.equals(etag))
+                    return true;
+            } else {
+                if (opaqueTag(t).equals(opaqueTag(etag)))
+                    return true;
+            }
+        }
+        return false;
+    }
+
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * The entity tag of an encoded representation, which needs to differ from that of the contents as is.
+     */
+    private static String withEncoding(String etag, String encoding) {
+        return etag.substring(0,etag.length()-1)+'-'+encoding+'"';
+    }
+
+    /**
+     * Evaluates <tt>If-Range</tt>: should the requested ranges be sent,
+     * or the whole representation because it has changed since the client got the other parts?
+     */
+    private static boolean isRangeCurrent(HttpServletRequest req, @CheckForNull String etag, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange==null)
+            return true;
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+            return etag!=null && matchesETag(ifRange, etag, true);
+        long date = HttpDates.parse(ifRange);
+        return date!=-1 && lastModified!=0 && lastModified/1000==date/1000;
+    }
+
+    /**
+     * Contents of a static resource to send ranges of.
+     */
+    private interface RangeSource {
+        /**
+         * Sends the given portion of the contents.
+         * Portions are requested in the ascending order without overlaps.
+         */
+        void copy(long start, long count, OutputStream out) throws IOException;
+    }
+
+    private static RangeSource rangesOf(final byte[] data) {
+        return new RangeSource() {
+            public void copy(long start, long count, OutputStream out) throws IOException {
+                out.write(data,(int)start,(int)count);
+            }
+        };
+    }
+
+    private static RangeSource rangesOf(final File file) {
+        return new RangeSource() {
+            public void copy(long start, long count, OutputStream out) throws IOException {
+                Stapler.copy(file,start,count,out);
+            }
+        };
+    }
+
+    private static RangeSource rangesOf(final InputStream in) {
+        return new RangeSource() {
+            private long position;
+
+            public void copy(long start, long count, OutputStream out) throws IOException {
+                DataInputStream dis = new DataInputStream(in);
+                long toSkip = start-position, thisSkip;
+                while (toSkip > 0 && (thisSkip = dis.skipBytes((int)Math.min(toSkip, Integer.MAX_VALUE))) > 0)
+                    toSkip -= thisSkip;
+                if (toSkip > 0)
+                    throw new IOException(
+                        "skipBytes failure (" + toSkip + " of " + (start-position) + " bytes unskipped)");
+                IOUtils.copy(new TruncatedInputStream(in,count), out);
+                position = start+count;
+            }
+        };
+    }
+
+    /**
+     * Sends the requested ranges as in RFC 7233: a single range as is, several ones as <tt>multipart/byteranges</tt>,
+     * or 416 Requested Range Not Satisfiable if there's none.
+     *
+     * @param ranges
+     *      As returned from {@link ByteRange#parse(String, long)}.
      */
-    private static final Pattern RANGE_SPEC = Pattern.compile("([\\d]+)-([\\d]*)");
+    private static void sendRanges(StaplerResponse rsp, List<ByteRange> ranges, long length, String mimeType, RangeSource source) throws IOException {
+        if (ranges.isEmpty()) {
+            rsp.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            rsp.setHeader("Content-Range","bytes */"+length);
+            rsp.setHeader("Content-Length","0");
+            return;
+        }
+
+        rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        OutputStream out;
+        if (ranges.size()==1) {
+            ByteRange r = ranges.get(0);
+            rsp.setHeader("Content-Range",r.contentRange(length));
+            rsp.setHeader("Content-Length",Long.toString(r.length()));
+            out = rsp.getOutputStream();
+            source.copy(r.first,r.length(),out);
+        } else {
+            String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()|Long.MIN_VALUE);
+            byte[][] headers = new byte[ranges.size()][];
+            byte[] trailer = ("\r\n--"+boundary+"--\r\n").getBytes("US-ASCII");
+            long total = trailer.length;
+            for (int i=0; i<headers.length; i++) {
+                ByteRange r = ranges.get(i);
+                headers[i] = ("\r\n--"+boundary+"\r\nContent-Type: "+mimeType+"\r\nContent-Range: "+r.contentRange(length)+"\r\n\r\n").getBytes("US-ASCII");
+                total += headers[i].length+r.length();
+            }
+
+            rsp.setContentType("multipart/byteranges; boundary="+boundary);
+            rsp.setHeader("Content-Length",Long.toString(total));
+            out = rsp.getOutputStream();
+            for (int i=0; i<headers.length; i++) {
+                ByteRange r = ranges.get(i);
+                out.write(headers[i]);
+                source.copy(r.first,r.length(),out);
+            }
+            out.write(trailer);
+        }
+        out.close();
+    }
 
     private String getMimeType(String fileName) {
         if(fileName.startsWith("mime-type:"))
@@ -711,7 +1183,7 @@ public class Stapler extends HttpServlet {
         MetaClass metaClass = webApp.getMetaClass(node);
 
         try {
-            for( Dispatcher d : metaClass.dispatchers ) {
+            for( Dispatcher d : metaClass.getDispatchers(req.tokens) ) {
                 if(d.dispatch(req,rsp,node)) {
                     if(LOGGER.isLoggable(Level.FINER))
                         LOGGER.finer("Handled by "+d);
@@ -807,7 +1279,7 @@ public class Stapler extends HttpServlet {
         if (x instanceof EOFException) {
             return true;
         }
-        if (x instanceof IOException && "Closed".equals(x.getMessage())) { // org.eclipse.jetty.server.HttpOutput.print
+        if (x instanceof IOException && "Closed".equals(x.getMessage())) { // org.eclipse.jetty.server.HttpOutput.print, CompressingServletOutputStream.write
             return true;
         }
         if (x instanceof IOException && "finished".equals(x.getMessage())) { //com.jcraft.jzlib.DeflaterOutputStream.write
@@ -961,19 +1433,6 @@ public class Stapler extends HttpServlet {
         return CURRENT_REQUEST.get().getStapler();
     }
 
-    /**
-     * HTTP date format. Notice that {@link SimpleDateFormat} is thread unsafe.
-     */
-    static final ThreadLocal<SimpleDateFormat> HTTP_DATE_FORMAT =
-        new ThreadLocal<SimpleDateFormat>() {
-            protected @Override SimpleDateFormat initialValue() {
-                // RFC1945 section 3.3 Date/Time Formats states that timezones must be in GMT
-                SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
-                format.setTimeZone(TimeZone.getTimeZone("GMT"));
-                return format;
-            }
-        };
-
     /*package*/ static ThreadLocal<RequestImpl> CURRENT_REQUEST = new ThreadLocal<RequestImpl>();
     /*package*/ static ThreadLocal<ResponseImpl> CURRENT_RESPONSE = new ThreadLocal<ResponseImpl>();
 
@@ -990,47 +1449,79 @@ public class Stapler extends HttpServlet {
      * Get raw servlet path (decoded in TokenList).
      */
     /*package*/ String getServletPath(HttpServletRequest req) {
-        return canonicalPath(req.getRequestURI().substring(req.getContextPath().length()));
+        String uri = req.getRequestURI();
+        int contextPathLength = req.getContextPath().length();
+        return canonicalPath(contextPathLength==0 ? uri : uri.substring(contextPathLength));
     }
 
     /**
      * Some web containers (e.g., Winstone) leaves ".." and "." in the request URL,
      * which is a security risk. Fix that by normalizing them.
+     *
+     * <p>
+     * Also collapses consecutive '/'s. Paths that are already canonical, which is almost always the case,
+     * are returned as is.
      */
     static String canonicalPath(String path) {
-        List<String> r = new ArrayList<String>(Arrays.asList(path.split("/+")));
-        for (int i=0; i<r.size(); ) {
-            if (r.get(i).length()==0 || r.get(i).equals(".")) {
-                // empty token occurs for example, "".split("/+") is [""]
-                r.remove(i);
-            } else
-            if (r.get(i).equals("..")) {
-                // i==0 means this is a broken URI.
-                r.remove(i);
-                if (i>0) {
-                    r.remove(i-1);
-                    i--;
-                }
-            } else {
-                i++;
-            }
-        }
+        if (isCanonical(path))
+            return path;
 
-        StringBuilder buf = new StringBuilder();
+        int n = path.length();
+        StringBuilder buf = new StringBuilder(n);
         if (path.startsWith("/"))
             buf.append('/');
-        boolean first = true;
-        for (String token : r) {
-            if (!first)     buf.append('/');
-            else            first = false;
-            buf.append(token);
+        int base = buf.length();
+        int[] starts = new int[n/2+1];  // where each segment in buf starts, to go back on ".."
+        int depth = 0;
+        for (int i=0; i<=n; ) {
+            int j = path.indexOf('/',i);
+            if (j<0)    j = n;
+            if (isDots(path,i,j,2)) {
+                // depth==0 means this is a broken URI.
+                if (depth>0)
+                    buf.setLength(starts[--depth]);
+            } else if (j>i && !isDots(path,i,j,1)) {
+                starts[depth++] = buf.length();
+                if (buf.length()>base)
+                    buf.append('/');
+                buf.append(path,i,j);
+            }
+            i = j+1;
         }
+
         // translation: if (path.endsWith("/") && !buf.endsWith("/"))
         if (path.endsWith("/") && (buf.length()==0 || buf.charAt(buf.length()-1)!='/'))
             buf.append('/');
         return buf.toString();
     }
 
+    /**
+     * Does the path have neither empty segments (other than at the beginning or the end), "." nor ".."?
+     */
+    private static boolean isCanonical(String path) {
+        int n = path.length();
+        for (int i=0; i<n; ) {
+            int j = path.indexOf('/',i);
+            if (j<0)    j = n;
+            if ((j==i && i>0) || isDots(path,i,j,1) || isDots(path,i,j,2))
+                return false;
+            i = j+1;
+        }
+        return true;
+    }
+
+    /**
+     * Is the segment between the given offsets "." or ".."?
+     */
+    private static boolean isDots(String path, int start, int end, int count) {
+        if (end-start!=count)
+            return false;
+        for (int i=start; i<end; i++)
+            if (path.charAt(i)!='.')
+                return false;
+        return true;
+    }
+
 
     /**
      * This is the {@link Converter} registry that Stapler uses, primarily
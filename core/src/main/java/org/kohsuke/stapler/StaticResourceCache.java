@@ -0,0 +1,173 @@
+package org.kohsuke.stapler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.jcraft.jzlib.GZIPOutputStream;
+
+import javax.annotation.CheckForNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * What {@link Stapler} knows about the static resources it has served, keyed by their resolved {@link URL}s,
+ * so that serving them again doesn't need to open them.
+ *
+ * <p>
+ * Small resources are kept with their contents, and text ones are also kept gzipped.
+ * Precompressed siblings of text resources, like <tt>foo.js.gz</tt>, are kept here just like other resources,
+ * including the fact that there's none.
+ * The cache is bounded by the total size of the contents, and the least recently used ones are evicted first.
+ * Since this works on the same assumption as the resource path cache that the web application doesn't change,
+ * {@link Stapler#buildResourcePaths()} clears it.
+ *
+ * <p>
+ * The system property <tt>org.kohsuke.stapler.StaticResourceCache.size</tt> sets the size in bytes, and 0 disables it.
+ */
+final class StaticResourceCache {
+    /**
+     * A static resource.
+     */
+    static final class Entry {
+        final URL url;
+        /**
+         * False if the resource turned out to be missing when it was opened.
+         */
+        final boolean exists;
+        /**
+         * -1 if unknown.
+         */
+        final long length;
+        final long lastModified;
+        final String mimeType;
+        final String etag;
+        /**
+         * The contents, or null if the resource is too big to be kept.
+         */
+        final @CheckForNull byte[] data;
+        /**
+         * The gzipped contents, or null if the resource isn't text or {@link #data} is null.
+         */
+        final @CheckForNull byte[] gzipped;
+        /**
+         * True if this is a text resource, which is worth sending compressed.
+         */
+        final boolean compressible;
+
+        Entry(URL url, long length, long lastModified, String mimeType, @CheckForNull byte[] data, boolean compress) throws IOException {
+            this.url = url;
+            this.exists = true;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.mimeType = mimeType;
+            this.etag = etag(lastModified, length);
+            this.data = data;
+            this.gzipped = data!=null && compress ? gzip(data) : null;
+            this.compressible = compress;
+        }
+
+        private Entry(URL url) {
+            this.url = url;
+            this.exists = false;
+            this.length = -1;
+            this.lastModified = 0;
+            this.mimeType = null;
+            this.etag = null;
+            this.data = null;
+            this.gzipped = null;
+            this.compressible = false;
+        }
+
+        int size() {
+            return OVERHEAD + (data!=null ? data.length : 0) + (gzipped!=null ? gzipped.length : 0);
+        }
+
+        static Entry missing(URL url) {
+            return new Entry(url);
+        }
+    }
+
+    private final Cache<String,Entry> entries;
+
+    private StaticResourceCache(long size) {
+        entries = CacheBuilder.newBuilder()
+                .maximumWeight(size)
+                .weigher(new Weigher<String,Entry>() {
+                    public int weigh(String key, Entry value) {
+                        return value.size();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * Returns the cached entry for the given URL, or computes it.
+     */
+    Entry get(URL url, Callable<Entry> loader) throws IOException {
+        try {
+            return entries.get(url.toExternalForm(), loader);
+        } catch (ExecutionException e) {
+            Throwable t = e.getCause();
+            if (t instanceof IOException)
+                throw (IOException)t;
+            throw new IOException("Failed to load "+url,t);
+        }
+    }
+
+    /**
+     * Like {@link #get(URL, Callable)}, but reloads the entry if the resource has been modified since.
+     *
+     * @param lastModified
+     *      The current timestamp of the resource.
+     */
+    Entry get(URL url, long lastModified, Callable<Entry> loader) throws IOException {
+        Entry e = get(url, loader);
+        if (e.lastModified!=lastModified) {
+            entries.invalidate(url.toExternalForm());
+            e = get(url, loader);
+        }
+        return e;
+    }
+
+    void clear() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Creates the cache sized by the system property, or returns null if it's disabled.
+     */
+    static @CheckForNull StaticResourceCache create() {
+        long size = Long.getLong(StaticResourceCache.class.getName()+".size", DEFAULT_SIZE);
+        return size<=0 ? null : new StaticResourceCache(size);
+    }
+
+    /**
+     * The strong entity tag of a resource, derived from its timestamp and length.
+     */
+    static String etag(long lastModified, long length) {
+        return '"' + Long.toHexString(lastModified) + '-' + Long.toHexString(length) + '"';
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length/4+64);
+        GZIPOutputStream gz = new GZIPOutputStream(buf);
+        gz.write(data);
+        gz.close();
+        return buf.toByteArray();
+    }
+
+    /**
+     * Resources larger than this are not kept in memory.
+     */
+    static final int MAX_CONTENT_SIZE = 64*1024;
+
+    private static final long DEFAULT_SIZE = 16*1024*1024;
+
+    /**
+     * Rough memory footprint of an {@link Entry} besides its contents.
+     */
+    private static final int OVERHEAD = 256;
+}
@@ -23,7 +23,6 @@
 
 package org.kohsuke.stapler;
 
-import java.util.StringTokenizer;
 import java.io.ByteArrayOutputStream;
 import java.io.UnsupportedEncodingException;
 
@@ -36,7 +35,7 @@ import java.io.UnsupportedEncodingException;
  */
 public final class TokenList {
     /**
-     * URL-decoded tokens.
+     * URL-decoded tokens. The same array as {@link #rawTokens} if none of them needed decoding.
      */
     public final String[] tokens;
     /**
@@ -55,17 +54,43 @@ public final class TokenList {
 
     TokenList(String url) {
         // to avoid a directory traversal vulnerability in Windows, treat '\\' as a path separator just like '/'
-        StringTokenizer tknzr = new StringTokenizer(url,"/\\");
-        final int tokenCount = tknzr.countTokens();
-        tokens = new String[tokenCount];
-        rawTokens = new String[tokenCount];
-        for(int i=0; tknzr.hasMoreTokens(); i++) {
-            rawTokens[i] = tknzr.nextToken();
-            tokens[i] = decode(rawTokens[i]);
+        int n = url.length();
+        int count = 0;
+        boolean escaped = false;
+        for (int i=0; i<n; i++) {
+            char ch = url.charAt(i);
+            if (isSeparator(ch))
+                continue;
+            if (i==0 || isSeparator(url.charAt(i-1)))
+                count++;
+            if (ch=='%')
+                escaped = true;
+        }
+
+        rawTokens = new String[count];
+        for (int i=0, t=0; t<count; t++) {
+            while (isSeparator(url.charAt(i)))
+                i++;
+            int j = i+1;
+            while (j<n && !isSeparator(url.charAt(j)))
+                j++;
+            rawTokens[t] = url.substring(i,j);
+            i = j;
+        }
+
+        // in the common case there's nothing to decode, so share the array
+        tokens = escaped ? new String[count] : rawTokens;
+        for (int i=0; i<count; i++) {
+            if (escaped)
+                tokens[i] = decode(rawTokens[i]);
             if (tokens[i].equals(".."))
                 throw new IllegalArgumentException(url);
         }
-        endsWithSlash = url.endsWith("/") || url.endsWith("\\");
+        endsWithSlash = n>0 && isSeparator(url.charAt(n-1));
+    }
+
+    private static boolean isSeparator(char ch) {
+        return ch=='/' || ch=='\\';
     }
 
     public boolean hasMore() {
@@ -0,0 +1,208 @@
+package org.kohsuke.stapler;
+
+import org.kohsuke.stapler.lang.Klass;
+import org.kohsuke.stapler.lang.KlassNavigator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds {@link MetaClass}es ahead of time, so that the first requests after a restart don't have to.
+ *
+ * <p>
+ * Starting from the given roots, this crawls the types that URL traversal can reach through public
+ * getters, {@code getDynamic} methods, and public fields, and builds their {@link MetaClass}es
+ * (and thereby their dispatchers and view lookups) in parallel.
+ * JDK types aren't crawled. A type that fails to build is logged and skipped.
+ *
+ * <p>
+ * Override {@link #onProgress(MetaClass, int)} to report progress somewhere other than the log.
+ * Each instance is meant to be run once.
+ *
+ * @see WebApp#warmUp(Object...)
+ */
+public class WarmUp {
+    private final WebApp webApp;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private final Set<Class<?>> seen = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>,Boolean>());
+    private final AtomicInteger built = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private volatile ClassLoader contextClassLoader;
+
+    public WarmUp(WebApp webApp) {
+        this.webApp = webApp;
+    }
+
+    /**
+     * Sets the number of threads to use. Defaults to the number of processors.
+     */
+    public WarmUp parallelism(int parallelism) {
+        if (parallelism<1)
+            throw new IllegalArgumentException("parallelism must be positive: "+parallelism);
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * Crawls from the given roots and waits for the completion.
+     *
+     * @param roots
+     *      {@link Class}es, or objects whose {@link MetaClass}es are determined
+     *      by {@link WebApp#getMetaClass(Object)}.
+     */
+    public Summary run(Iterable<?> roots) {
+        long start = System.nanoTime();
+        final List<Task> tasks = new ArrayList<Task>();
+        Set<Klass<?>> klasses = new HashSet<Klass<?>>();
+        for (Object root : roots) {
+            if (root instanceof Class) {
+                if (seen.add((Class<?>) root))
+                    tasks.add(new Task(root));
+            } else if (root!=null) {
+                // objects of the same type share their MetaClass, so only crawl from it once
+                Klass<?> k = webApp.getKlass(root);
+                if (k.navigator==KlassNavigator.JAVA ? seen.add(k.toJavaClass()) : klasses.add(k))
+                    tasks.add(new Task(k));
+            }
+        }
+
+        // facets may rely on the context class loader to find scripts
+        contextClassLoader = Thread.currentThread().getContextClassLoader();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RecursiveAction() {
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+
+        Summary s = new Summary(built.get(), failed.get(), (System.nanoTime()-start)/1000000);
+        LOGGER.info(s.toString());
+        return s;
+    }
+
+    /**
+     * Called from a worker thread whenever a {@link MetaClass} is built.
+     *
+     * @param count
+     *      The number of {@link MetaClass}es built so far, including this one.
+     */
+    protected void onProgress(MetaClass mc, int count) {
+        if (LOGGER.isLoggable(Level.FINE))
+            LOGGER.fine("Warmed up "+mc.klass+" ("+count+" so far)");
+    }
+
+    private final class Task extends RecursiveAction {
+        /**
+         * {@link Class} or {@link Klass}.
+         */
+        private final Object root;
+
+        Task(Object root) {
+            this.root = root;
+        }
+
+        protected void compute() {
+            Thread t = Thread.currentThread();
+            ClassLoader old = t.getContextClassLoader();
+            t.setContextClassLoader(contextClassLoader);
+            List<Task> children = new ArrayList<Task>();
+            try {
+                MetaClass mc = root instanceof Class ? webApp.getMetaClass((Class) root) : webApp.getMetaClass((Klass<?>) root);
+                onProgress(mc,built.incrementAndGet());
+
+                if (mc.klass.navigator==KlassNavigator.JAVA) {    // we only know how to crawl Java classes
+                    for (Class<?> c : reachableFrom(mc.klass.toJavaClass()))
+                        if (seen.add(c))
+                            children.add(new Task(c));
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            } catch (LinkageError e) {
+                fail(e);
+            } finally {
+                t.setContextClassLoader(old);
+            }
+            invokeAll(children);
+        }
+
+        private void fail(Throwable e) {
+            failed.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Failed to warm up "+root, e);
+        }
+    }
+
+    /**
+     * Types that URL traversal can reach from the given type.
+     */
+    private static List<Class<?>> reachableFrom(Class<?> c) {
+        List<Class<?>> r = new ArrayList<Class<?>>();
+        for (Method m : c.getMethods()) {
+            if (Modifier.isStatic(m.getModifiers()))
+                continue;
+            String n = m.getName();
+            if (n.startsWith("get") && n.length()>3 && m.getParameterTypes().length<=1 || n.equals("getDynamic"))
+                addIfCrawlable(m.getReturnType(), r);
+        }
+        for (Field f : c.getFields()) {
+            if (!Modifier.isStatic(f.getModifiers()))
+                addIfCrawlable(f.getType(), r);
+        }
+        return r;
+    }
+
+    private static void addIfCrawlable(Class<?> t, List<Class<?>> r) {
+        while (t.isArray())
+            t = t.getComponentType();
+        if (t.isPrimitive())
+            return;
+        String n = t.getName();
+        if (n.startsWith("java.") || n.startsWith("javax."))
+            return;
+        r.add(t);
+    }
+
+    /**
+     * Outcome of {@link WarmUp#run(Iterable)}.
+     */
+    public static final class Summary {
+        /**
+         * Number of {@link MetaClass}es built, or found to be built already.
+         */
+        public final int classes;
+        /**
+         * Number of types that failed to build.
+         */
+        public final int failures;
+        public final long millis;
+
+        Summary(int classes, int failures, long millis) {
+            this.classes = classes;
+            this.failures = failures;
+            this.millis = millis;
+        }
+
+        @Override
+        public String toString() {
+            return "Warmed up "+classes+" classes in "+millis+"ms"+(failures>0 ? " ("+failures+" failed)" : "");
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(WarmUp.class.getName());
+}
@@ -23,6 +23,12 @@
 
 package org.kohsuke.stapler;
 
+import com.google.common.base.Throwables;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import net.sf.json.JSONObject;
 import org.kohsuke.stapler.bind.BoundObjectTable;
 import org.kohsuke.stapler.lang.KInstance;
@@ -31,6 +37,7 @@ import org.kohsuke.stapler.lang.Klass;
 import javax.servlet.Filter;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -89,7 +96,19 @@ public class WebApp {
      *
      * TODO: is this really mutable?
      */
-    public final List<Facet> facets = new Vector<Facet>();
+    public final List<Facet> facets = new FacetList();
+
+    /**
+     * {@link Vector} that tells when facets are added or removed, so that {@link #javaClassMap} is rebuilt.
+     */
+    private static final class FacetList extends Vector<Facet> {
+        /**
+         * Changes whenever facets are added or removed.
+         */
+        synchronized int version() {
+            return modCount;
+        }
+    }
 
     /**
      * Global {@link BindInterceptor}s.
@@ -113,9 +132,41 @@ public class WebApp {
     /**
      * All {@link MetaClass}es.
      *
+     * <p>
+     * Looking up an existing {@link MetaClass} doesn't lock, as this happens at every step of every request.
+     * Each {@link MetaClass} is built only once. Building one builds the {@link MetaClass} of its base class first,
+     * so this must allow a thread to load other keys while it's loading one.
+     *
      * Note that this permanently holds a strong reference to its key, i.e. is a memory leak.
      */
-    private final Map<Klass<?>,MetaClass> classMap = new HashMap<Klass<?>,MetaClass>();
+    private final LoadingCache<Klass<?>,MetaClass> classMap = CacheBuilder.newBuilder().build(new CacheLoader<Klass<?>,MetaClass>() {
+        public MetaClass load(Klass<?> c) {
+            return new MetaClass(WebApp.this,c);
+        }
+    });
+
+    /**
+     * {@link MetaClass}es of Java classes whose instances no {@link Facet} {@linkplain Facet#claims(Class) claims},
+     * so that {@link #getMetaClass(Object)} doesn't need to create a {@link Klass} for every object in the URL.
+     * Claimed classes map to {@link #CLAIMED}.
+     *
+     * Like {@link #classMap}, this holds a strong reference to its key. It's replaced whenever facets are
+     * added or removed, as the classes that no facet claimed so far may be claimed by the new one.
+     */
+    private volatile JavaClassMap javaClassMap = new JavaClassMap(0);
+
+    private static final class JavaClassMap extends ConcurrentHashMap<Class<?>,Object> {
+        /**
+         * {@link FacetList#version()} that this is computed for.
+         */
+        final int facetsVersion;
+
+        JavaClassMap(int facetsVersion) {
+            this.facetsVersion = facetsVersion;
+        }
+    }
+
+    private static final Object CLAIMED = new Object();
 
     /**
      * Handles objects that are exported.
@@ -193,18 +244,24 @@ public class WebApp {
     }
 
     public MetaClass getMetaClass(Class c) {
+        if (c!=null) {
+            Object v = javaClassMap.get(c);
+            if (v instanceof MetaClass)
+                return (MetaClass)v;
+        }
         return getMetaClass(Klass.java(c));
     }
     
     public MetaClass getMetaClass(Klass<?> c) {
         if(c==null)     return null;
-        synchronized(classMap) {
-            MetaClass mc = classMap.get(c);
-            if(mc==null) {
-                mc = new MetaClass(this,c);
-                classMap.put(c,mc);
-            }
-            return mc;
+        MetaClass mc = classMap.getIfPresent(c);
+        if (mc!=null)   return mc;
+        try {
+            return classMap.getUnchecked(c);
+        } catch (UncheckedExecutionException e) {
+            throw Throwables.propagate(e.getCause());
+        } catch (ExecutionError e) {
+            throw Throwables.propagate(e.getCause());
         }
     }
 
@@ -215,9 +272,38 @@ public class WebApp {
      * This code consults all facets to handle scripting language objects correctly.
      */
     public MetaClass getMetaClass(Object o) {
+        Class<?> c = o.getClass();
+        JavaClassMap m = javaClassMap;
+        int version = ((FacetList)facets).version();
+        if (m.facetsVersion!=version)
+            javaClassMap = m = new JavaClassMap(version);
+
+        Object v = m.get(c);
+        if (v instanceof MetaClass)
+            return (MetaClass)v;
+        if (v==null) {
+            if (!isClaimed(c)) {
+                MetaClass mc = getMetaClass(Klass.java(c));
+                m.putIfAbsent(c,mc);
+                return mc;
+            }
+            m.putIfAbsent(c,CLAIMED);
+        }
         return getMetaClass(getKlass(o));
     }
 
+    /**
+     * Can instances of this class be mapped to anything other than {@code Klass.java(c)}?
+     */
+    private boolean isClaimed(Class<?> c) {
+        if (KInstance.class.isAssignableFrom(c))
+            return true;
+        for (Facet f : facets)
+            if (f.claims(c))
+                return true;
+        return false;
+    }
+
     public Klass<?> getKlass(Object o) {
         if (o instanceof KInstance) {
             KInstance ki = (KInstance) o;
@@ -226,14 +312,29 @@ public class WebApp {
                 return k;
         }
 
+        Class<?> c = o.getClass();
         for (Facet f : facets) {
+            if (!f.claims(c))
+                continue;
             Klass<?> k = f.getKlass(o);
             if (k!=null)
                 return k;
         }
-        return Klass.java(o.getClass());
+        return Klass.java(c);
     }
     
+    /**
+     * Builds the {@link MetaClass}es of the given roots and everything reachable from them in parallel,
+     * so that the first requests don't have to. Blocks until done.
+     *
+     * @param roots
+     *      {@link Class}es, or objects such as {@link #getApp()}.
+     * @see WarmUp
+     */
+    public WarmUp.Summary warmUp(Object... roots) {
+        return new WarmUp(this).run(Arrays.asList(roots));
+    }
+
     /**
      * Convenience maintenance method to clear all the cached scripts for the given tearoff type.
      *
@@ -244,12 +345,10 @@ public class WebApp {
      * @see MetaClass#NO_CACHE
      */
     public void clearScripts(Class<? extends AbstractTearOff> clazz) {
-        synchronized (classMap) {
-            for (MetaClass v : classMap.values()) {
-                AbstractTearOff t = v.getTearOff(clazz);
-                if (t!=null)
-                    t.clearScripts();
-            }
+        for (MetaClass v : classMap.asMap().values()) {
+            AbstractTearOff t = v.getTearOff(clazz);
+            if (t!=null)
+                t.clearScripts();
         }
     }
 
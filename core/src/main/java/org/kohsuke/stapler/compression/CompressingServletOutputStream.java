@@ -0,0 +1,202 @@
+package org.kohsuke.stapler.compression;
+
+import javax.annotation.CheckForNull;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * {@link ServletOutputStream} that gzips the response if {@link CompressionPolicy} says so.
+ *
+ * <p>
+ * The decision is made when more than {@link CompressionPolicy#getMinSize()} bytes have been written,
+ * or when the stream is flushed, so that the content type set after the stream was obtained
+ * (as Jelly views do) is taken into account. Content-Encoding is set at that point.
+ * If the stream is closed before that, the response is sent as is with Content-Length.
+ *
+ * @see CompressionPolicy#compress(HttpServletResponse, String)
+ */
+public final class CompressingServletOutputStream extends ServletOutputStream {
+    private final CompressionPolicy policy;
+    /**
+     * The response to write the compressed data to.
+     */
+    private final HttpServletResponse rsp;
+    private String contentType;
+    /**
+     * The length of the uncompressed response, if told, which is sent if it isn't compressed.
+     */
+    private int contentLength = -1;
+
+    /**
+     * What's written before the decision is made.
+     */
+    private byte[] buf;
+    private int count;
+
+    /**
+     * Where the data goes, once the decision is made.
+     */
+    private OutputStream out;
+    private ServletOutputStream raw;
+    private DeflaterOutputStream deflating;
+    private Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private boolean closed;
+
+    CompressingServletOutputStream(CompressionPolicy policy, HttpServletResponse rsp, @CheckForNull String contentType) {
+        this.policy = policy;
+        this.rsp = rsp;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Tells the content type of the response, if it's set after this stream is obtained.
+     */
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    /**
+     * Tells the length of the response as written to this stream, which is sent unless the response is compressed.
+     */
+    public void setContentLength(int len) {
+        if (out==null)
+            contentLength = len;
+        else if (deflating==null)
+            rsp.setContentLength(len);
+    }
+
+    /**
+     * Has it been decided to compress the response?
+     */
+    public boolean isCompressing() {
+        return deflating!=null;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (out==null) {
+            if (count<policy.getMinSize()) {
+                buffer(1)[count++] = (byte)b;
+                return;
+            }
+            decide();
+        }
+        if (deflating!=null)
+            crc.update(b);
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        ensureOpen();
+        if (out==null) {
+            if (count+len<=policy.getMinSize()) {
+                System.arraycopy(b,off,buffer(len),count,len);
+                count += len;
+                return;
+            }
+            decide();
+        }
+        if (deflating!=null)
+            crc.update(b,off,len);
+        out.write(b,off,len);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (closed)     return;
+        if (out==null)  decide();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)     return;
+        closed = true;
+
+        if (out==null) {
+            // small enough to send as is
+            policy.uncompressed.incrementAndGet();
+            rsp.setContentLength(count);
+            raw = rsp.getOutputStream();
+            raw.write(buf==null ? EMPTY : buf,0,count);
+            raw.close();
+            return;
+        }
+
+        if (deflating!=null) {
+            try {
+                deflating.finish();
+                writeInt((int)crc.getValue());
+                writeInt((int)deflater.getBytesRead());
+                policy.bytesIn.addAndGet(deflater.getBytesRead());
+                policy.bytesOut.addAndGet(GZIP_HEADER.length+deflater.getBytesWritten()+8);
+            } finally {
+                policy.deflaters.release(deflater);
+            }
+        }
+        raw.close();
+    }
+
+    private void decide() throws IOException {
+        if (policy.isCompressible(contentType)) {
+            rsp.setHeader("Content-Encoding","gzip");
+            raw = rsp.getOutputStream();
+            raw.write(GZIP_HEADER);
+            deflater = policy.deflaters.borrow();
+            out = deflating = new DeflaterOutputStream(raw,deflater,BUFFER_SIZE);
+            policy.compressed.incrementAndGet();
+        } else {
+            if (contentLength>=0)
+                rsp.setContentLength(contentLength);
+            raw = rsp.getOutputStream();
+            out = raw;
+            policy.uncompressed.incrementAndGet();
+        }
+
+        if (count>0) {
+            if (deflating!=null)
+                crc.update(buf,0,count);
+            out.write(buf,0,count);
+        }
+        buf = null;
+    }
+
+    private byte[] buffer(int len) {
+        if (buf==null)
+            buf = new byte[Math.max(policy.getMinSize(),len)];
+        return buf;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed)
+            throw new IOException("Closed");
+    }
+
+    private void writeInt(int i) throws IOException {
+        raw.write(i & 0xFF);
+        raw.write((i >> 8) & 0xFF);
+        raw.write((i >> 16) & 0xFF);
+        raw.write((i >> 24) & 0xFF);
+    }
+
+    private static final byte[] GZIP_HEADER = {
+        0x1f, (byte)0x8b,   // magic
+        Deflater.DEFLATED,  // compression method
+        0,                  // flags
+        0, 0, 0, 0,         // modification time
+        0,                  // extra flags
+        0                   // OS
+    };
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private static final int BUFFER_SIZE = 8192;
+}
@@ -0,0 +1,194 @@
+package org.kohsuke.stapler.compression;
+
+import javax.annotation.CheckForNull;
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Decides how responses are gzipped by {@link CompressionFilter} and
+ * {@link org.kohsuke.stapler.StaplerResponse#getCompressedOutputStream(javax.servlet.http.HttpServletRequest)},
+ * and keeps track of how well that goes.
+ *
+ * <p>
+ * Responses are compressed at the configured level with {@link Deflater}s reused from a pool,
+ * rather than allocating the compression state for each response anew.
+ * The first {@link #getMinSize()} bytes of a response are held back, and if the response turns out to be
+ * no bigger than that, it's sent as is, since compressing it wouldn't pay off.
+ * Responses whose content type isn't worth compressing, like images, are also sent as is.
+ *
+ * <p>
+ * The default policy is configured by the system properties <tt>org.kohsuke.stapler.compression.CompressionPolicy.level</tt>,
+ * <tt>.minSize</tt>, <tt>.allowedTypes</tt>, <tt>.deniedTypes</tt>, and <tt>.poolSize</tt>,
+ * and a web application can use its own with {@link #set(ServletContext, CompressionPolicy)}.
+ */
+public class CompressionPolicy {
+    private final int level;
+    private final int minSize;
+    private final List<String> allowedTypes;
+    private final List<String> deniedTypes;
+
+    final DeflaterPool deflaters;
+
+    final AtomicLong compressed = new AtomicLong();
+    final AtomicLong uncompressed = new AtomicLong();
+    final AtomicLong bytesIn = new AtomicLong();
+    final AtomicLong bytesOut = new AtomicLong();
+
+    /**
+     * @param level
+     *      Compression level from 0 to 9, or {@link Deflater#DEFAULT_COMPRESSION}.
+     * @param minSize
+     *      Responses of this many bytes or less are sent uncompressed.
+     * @param allowedTypes
+     *      Content types to compress, like <tt>text/html</tt>, or prefixes of them, like <tt>text/</tt> or <tt>text/*</tt>.
+     *      If empty, all content types are compressed except the denied ones, including responses without one.
+     * @param deniedTypes
+     *      Content types or prefixes never to compress, even if they are allowed.
+     * @param poolSize
+     *      Maximum number of idle {@link Deflater}s to keep.
+     */
+    public CompressionPolicy(int level, int minSize, Collection<String> allowedTypes, Collection<String> deniedTypes, int poolSize) {
+        if (level<Deflater.DEFAULT_COMPRESSION || level>Deflater.BEST_COMPRESSION)
+            throw new IllegalArgumentException("Invalid compression level: "+level);
+        this.level = level;
+        this.minSize = Math.max(0,minSize);
+        this.allowedTypes = normalize(allowedTypes);
+        this.deniedTypes = normalize(deniedTypes);
+        this.deflaters = new DeflaterPool(level,poolSize);
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    /**
+     * Is a response of this content type worth compressing?
+     *
+     * @param contentType
+     *      Value of the <tt>Content-Type</tt> header, parameters like charset included, or null if not set.
+     */
+    public boolean isCompressible(@CheckForNull String contentType) {
+        if (contentType==null)
+            return allowedTypes.isEmpty();
+
+        int semicolon = contentType.indexOf(';');
+        String type = (semicolon<0 ? contentType : contentType.substring(0,semicolon)).trim().toLowerCase(Locale.ENGLISH);
+        if (matches(deniedTypes,type))
+            return false;
+        return allowedTypes.isEmpty() || matches(allowedTypes,type);
+    }
+
+    /**
+     * Creates the stream to write a response through, which compresses it if this policy says so.
+     * {@link CompressingServletOutputStream#close()} must be called on it to complete the response.
+     *
+     * @param rsp
+     *      The response to write to, which shouldn't be compressing on its own.
+     * @param contentType
+     *      The content type of the response, if it's known already.
+     *      Otherwise let the stream know later with {@link CompressingServletOutputStream#setContentType(String)}.
+     */
+    public CompressingServletOutputStream compress(HttpServletResponse rsp, @CheckForNull String contentType) {
+        return new CompressingServletOutputStream(this,rsp,contentType);
+    }
+
+    /**
+     * Number of responses that were compressed.
+     */
+    public long getCompressedResponses() {
+        return compressed.get();
+    }
+
+    /**
+     * Number of responses that were sent as is, because they were too small or not of a compressible content type.
+     */
+    public long getUncompressedResponses() {
+        return uncompressed.get();
+    }
+
+    /**
+     * Total size of the compressed responses before compression.
+     */
+    public long getBytesIn() {
+        return bytesIn.get();
+    }
+
+    /**
+     * Total size of the compressed responses after compression.
+     */
+    public long getBytesOut() {
+        return bytesOut.get();
+    }
+
+    @Override
+    public String toString() {
+        return "CompressionPolicy[level="+level+",minSize="+minSize+",compressed="+compressed+",uncompressed="+uncompressed
+                +",bytesIn="+bytesIn+",bytesOut="+bytesOut+"]";
+    }
+
+    private static boolean matches(List<String> types, String type) {
+        for (String t : types) {
+            if (t.endsWith("/") ? type.startsWith(t) : type.equals(t))
+                return true;
+        }
+        return false;
+    }
+
+    private static List<String> normalize(Collection<String> types) {
+        List<String> r = new ArrayList<String>(types.size());
+        for (String t : types) {
+            t = t.trim().toLowerCase(Locale.ENGLISH);
+            if (t.endsWith("/*"))
+                t = t.substring(0,t.length()-1);
+            if (t.length()>0)
+                r.add(t);
+        }
+        return Collections.unmodifiableList(r);
+    }
+
+    private static List<String> split(String types) {
+        return Arrays.asList(types.split(","));
+    }
+
+    /**
+     * Returns the policy used in the given web application.
+     */
+    public static CompressionPolicy get(@CheckForNull ServletContext context) {
+        CompressionPolicy p = context!=null ? (CompressionPolicy) context.getAttribute(CompressionPolicy.class.getName()) : null;
+        if (p==null)    p=DEFAULT;
+        return p;
+    }
+
+    public static void set(ServletContext context, CompressionPolicy policy) {
+        context.setAttribute(CompressionPolicy.class.getName(),policy);
+    }
+
+    /**
+     * Content types that are already compressed, which are denied by default.
+     */
+    private static final String DEFAULT_DENIED_TYPES =
+            "image/png,image/jpeg,image/gif,image/webp,audio/,video/,application/zip,application/gzip,application/x-gzip,"+
+            "application/x-bzip2,application/x-7z-compressed,application/java-archive,application/pdf,font/woff,font/woff2";
+
+    /**
+     * The policy configured by the system properties.
+     */
+    public static final CompressionPolicy DEFAULT = new CompressionPolicy(
+            Integer.getInteger(CompressionPolicy.class.getName()+".level", Deflater.DEFAULT_COMPRESSION),
+            Integer.getInteger(CompressionPolicy.class.getName()+".minSize", 0),
+            split(System.getProperty(CompressionPolicy.class.getName()+".allowedTypes", "")),
+            split(System.getProperty(CompressionPolicy.class.getName()+".deniedTypes", DEFAULT_DENIED_TYPES)),
+            Integer.getInteger(CompressionPolicy.class.getName()+".poolSize", Runtime.getRuntime().availableProcessors()*2));
+}
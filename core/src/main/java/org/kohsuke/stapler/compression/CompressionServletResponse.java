@@ -1,7 +1,5 @@
 package org.kohsuke.stapler.compression;
 
-import com.jcraft.jzlib.GZIPOutputStream;
-
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpServletResponseWrapper;
@@ -17,13 +15,31 @@ import java.io.PrintWriter;
  */
 public class CompressionServletResponse extends HttpServletResponseWrapper {
     /**
-     * If not null, we are compressing the stream.
+     * If not null, we are compressing the stream, unless {@link CompressionPolicy} says otherwise.
      */
-    private ServletOutputStream stream;
+    private CompressingServletOutputStream stream;
     private PrintWriter writer;
+    private final CompressionPolicy policy;
+    private String contentType;
 
     public CompressionServletResponse(HttpServletResponse response) {
+        this(response, CompressionPolicy.DEFAULT);
+    }
+
+    public CompressionServletResponse(HttpServletResponse response, CompressionPolicy policy) {
         super(response);
+        this.policy = policy;
+    }
+
+    /**
+     * Remembers the content type, which {@link CompressionPolicy} decides on.
+     */
+    @Override
+    public void setContentType(String type) {
+        super.setContentType(type);
+        contentType = type;
+        if (stream!=null)
+            stream.setContentType(type);
     }
 
     /**
@@ -35,7 +51,11 @@ public class CompressionServletResponse extends HttpServletResponseWrapper {
      */
     @Override
     public void setContentLength(int len) {
-        if (stream!=null)       return;
+        if (stream!=null) {
+            // the stream sends it if it turns out not to compress
+            stream.setContentLength(len);
+            return;
+        }
         super.setContentLength(len);
     }
 
@@ -57,8 +77,8 @@ public class CompressionServletResponse extends HttpServletResponseWrapper {
 
     public void activate() throws IOException {
         if (stream==null) {
-            super.setHeader("Content-Encoding", "gzip");
-            stream = new FilterServletOutputStream(new GZIPOutputStream(super.getOutputStream()));
+            // Content-Encoding is set when the stream decides to compress
+            stream = policy.compress((HttpServletResponse)getResponse(), contentType);
         }
     }
 
@@ -0,0 +1,46 @@
+package org.kohsuke.stapler.compression;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * Idle {@link Deflater}s of a compression level, so that each compressed response doesn't
+ * allocate and free the native compression state.
+ */
+final class DeflaterPool {
+    private final int level;
+    private final int max;
+    private final Queue<Deflater> idle = new ConcurrentLinkedQueue<Deflater>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    DeflaterPool(int level, int max) {
+        this.level = level;
+        this.max = max;
+    }
+
+    /**
+     * Obtains a {@link Deflater} for raw deflate data, to be wrapped in gzip.
+     */
+    Deflater borrow() {
+        Deflater d = idle.poll();
+        if (d==null)
+            return new Deflater(level,true);
+        size.decrementAndGet();
+        return d;
+    }
+
+    /**
+     * Returns a {@link Deflater} obtained from {@link #borrow()}, which the caller shall no longer use.
+     */
+    void release(Deflater d) {
+        if (size.incrementAndGet()<=max) {
+            d.reset();
+            idle.offer(d);
+        } else {
+            size.decrementAndGet();
+            d.end();
+        }
+    }
+}
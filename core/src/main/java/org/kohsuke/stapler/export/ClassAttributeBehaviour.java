@@ -38,6 +38,14 @@ public abstract class ClassAttributeBehaviour {
         this.name = name;
     }
 
+    /**
+     * Name of this behaviour, like <tt>IF_NEEDED</tt> or <tt>IF_NEEDED+simple</tt>,
+     * which is the same for behaviours that write the same type attributes.
+     */
+    public String getName() {
+        return name;
+    }
+
     @Override
     public String toString() {
         return super.toString()+'['+name+']';
@@ -60,6 +68,13 @@ public abstract class ClassAttributeBehaviour {
         return t==null ? null : t.getName();
     }
 
+    /**
+     * {@link #print(Class)} of {@link Model#type}, encoded ahead of time.
+     */
+    EncodedName encode(Model<?> model) {
+        return model.className;
+    }
+
     public static final ClassAttributeBehaviour NONE = new ClassAttributeBehaviour("NONE") {
         @Override
         Class map(Type expected, Class actual) {
@@ -101,6 +116,11 @@ public abstract class ClassAttributeBehaviour {
             protected String print(Class t) {
                 return t==null ? null : t.getSimpleName();
             }
+
+            @Override
+            EncodedName encode(Model<?> model) {
+                return model.simpleClassName;
+            }
         };
     }
 }
@@ -0,0 +1,90 @@
+package org.kohsuke.stapler.export;
+
+import java.io.UnsupportedEncodingException;
+
+/**
+ * A property name or a class name, encoded ahead of time into the forms that the writers
+ * in this package write it out.
+ *
+ * <p>
+ * {@link Property} and {@link Model} compute these once, so that writing the same names
+ * over and over again for every object doesn't involve quoting, escaping, or encoding.
+ *
+ * @see EncodedNameWriter
+ */
+final class EncodedName {
+    final String name;
+
+    /**
+     * The name in double quotes, as a property name of JSON, Python, and Ruby. Not escaped.
+     */
+    final char[] quoted;
+    final byte[] quotedUtf8;
+
+    /**
+     * The name as a JSON string value, as the '_class' attribute of JSON, Python, and Ruby.
+     */
+    final char[] jsonValue;
+    final byte[] jsonValueUtf8;
+
+    /**
+     * The name as an element name of XML, and its singular form for array items.
+     */
+    final String xmlName;
+    final String xmlSingularName;
+
+    EncodedName(String name) {
+        this.name = name;
+        String q = '"' + name + '"';
+        String v = JSONDataWriter.quote(name);
+        this.quoted = q.toCharArray();
+        this.quotedUtf8 = utf8(q);
+        this.jsonValue = v.toCharArray();
+        this.jsonValueUtf8 = utf8(v);
+        this.xmlName = XMLDataWriter.makeXmlName(name);
+        this.xmlSingularName = XMLDataWriter.toSingular(xmlName);
+    }
+
+    /**
+     * Only one JSON string value form, for a class name that's written just once.
+     */
+    private EncodedName(String name, String jsonValue, boolean utf8) {
+        this.name = name;
+        this.quoted = null;
+        this.quotedUtf8 = null;
+        this.jsonValue = utf8 ? null : jsonValue.toCharArray();
+        this.jsonValueUtf8 = utf8 ? utf8(jsonValue) : null;
+        this.xmlName = null;
+        this.xmlSingularName = null;
+    }
+
+    /**
+     * Encodes a name only into {@link #jsonValue}, leaving the other forms null.
+     * For the '_class' attribute of a single object, which isn't worth encoding in every form.
+     */
+    static EncodedName jsonValueOf(String name) {
+        return new EncodedName(name, JSONDataWriter.quote(name), false);
+    }
+
+    /**
+     * Like {@link #jsonValueOf(String)}, but only into {@link #jsonValueUtf8}.
+     */
+    static EncodedName jsonValueUtf8Of(String name) {
+        return new EncodedName(name, JSONDataWriter.quote(name), true);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static byte[] utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static final EncodedName CLASS_PROPERTY_NAME = new EncodedName(DataWriter.CLASS_PROPERTY_NAME);
+}
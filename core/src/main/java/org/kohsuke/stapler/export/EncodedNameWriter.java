@@ -0,0 +1,23 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * {@link DataWriter} that takes names encoded ahead of time by {@link EncodedName}.
+ */
+interface EncodedNameWriter extends DataWriter {
+    /**
+     * Same as {@link #name(String)}.
+     */
+    void name(EncodedName name) throws IOException;
+
+    /**
+     * Same as {@link #type(Type, Class)}, except that {@link ClassAttributeBehaviour} has already been applied.
+     *
+     * @param classAttr
+     *      The class attribute to write for the next {@link #startObject()}, or null to not write any.
+     */
+    void type(@Nullable EncodedName classAttr) throws IOException;
+}
@@ -20,6 +20,8 @@ public class ExportConfig {
 
     private Flavor flavor = Flavor.JSON;
 
+    private boolean streaming = false;
+
     /**
      * If true, output will be indented to make it easier for humans to understand.
      */
@@ -83,4 +85,23 @@ public class ExportConfig {
         this.flavor = flavor;
         return this;
     }
+
+    /**
+     * If true, flavors that support it write UTF-8 bytes straight to the {@link java.io.OutputStream}
+     * instead of going through a {@link java.io.Writer}.
+     *
+     * @see Flavor#createDataWriter(Object, java.io.OutputStream, ExportConfig)
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Turn on or off writing UTF-8 bytes directly for flavors that support it.
+     * The output is the same either way.
+     */
+    public ExportConfig withStreaming(boolean streaming) {
+        this.streaming = streaming;
+        return this;
+    }
 }
@@ -23,7 +23,11 @@
 
 package org.kohsuke.stapler.export;
 
+import org.kohsuke.stapler.MethodHandleFactory;
+
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 
 /**
@@ -32,10 +36,12 @@ import java.lang.reflect.Type;
  */
 class FieldProperty extends Property {
     private final Field field;
+    private final MethodHandle getter;
 
     public FieldProperty(Model owner, Field field, Exported exported) {
         super(owner, field.getName(), field.getGenericType(), exported);
         this.field = field;
+        this.getter = accessor(MethodHandleFactory.getter(field), Modifier.isStatic(field.getModifiers()));
     }
 
     public Type getGenericType() {
@@ -51,6 +57,13 @@ class FieldProperty extends Property {
     }
 
     public Object getValue(Object object) throws IllegalAccessException {
-        return field.get(object);
+        try {
+            return (Object)getter.invokeExact(object);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // reading a field doesn't throw a checked exception
+            throw new AssertionError(t);
+        }
     }
 }
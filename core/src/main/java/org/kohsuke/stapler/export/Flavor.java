@@ -24,6 +24,7 @@
 package org.kohsuke.stapler.export;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 import org.kohsuke.stapler.StaplerResponse;
@@ -38,11 +39,17 @@ public enum Flavor {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
             return new JSONDataWriter(w,config);
         }
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new StreamingJSONDataWriter(out,config);
+        }
     },
     JSONP("application/javascript;charset=UTF-8") {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
             return new JSONDataWriter(w,config);
         }
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new StreamingJSONDataWriter(out,config);
+        }
     },
     PYTHON("text/x-python;charset=UTF-8") {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
@@ -76,4 +83,20 @@ public enum Flavor {
         return createDataWriter(bean,w,new ExportConfig().withFlavor(this));
     }
     public abstract DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException;
+
+    /**
+     * Creates a {@link DataWriter} that writes UTF-8 bytes directly to the given stream.
+     *
+     * <p>
+     * The returned writer sends out everything it has written by the time the top-level object
+     * or array is completed. It doesn't close or flush the stream.
+     *
+     * @return
+     *      null if this flavor can only be written through {@link Writer},
+     *      in which case use {@link #createDataWriter(Object, Writer, ExportConfig)}.
+     * @see ExportConfig#isStreaming()
+     */
+    public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+        return null;
+    }
 }
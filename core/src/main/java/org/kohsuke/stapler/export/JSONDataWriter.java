@@ -27,22 +27,34 @@ import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.Arrays;
 
 /**
  * JSON writer.
  *
  * @author Kohsuke Kawaguchi
  */
-class JSONDataWriter implements DataWriter {
+class JSONDataWriter implements MarkableDataWriter, EncodedNameWriter {
     protected boolean needComma;
     protected final Writer out;
     protected final ExportConfig config;
 
     private int indent;
-    private String classAttr;
+    private EncodedName classAttr;
+
+    /**
+     * Holds back the output while {@link #mark()} is in effect.
+     */
+    private final Checkpoints checkpoints;
+
+    /**
+     * States saved by {@link #mark()}, innermost last. Reused across marks to avoid allocation.
+     */
+    private Mark[] marks = new Mark[4];
+    private int markDepth;
 
     JSONDataWriter(Writer out, ExportConfig config) throws IOException {
-        this.out = out;
+        this.out = checkpoints = new Checkpoints(out);
         this.config = config;
         indent = config.isPrettyPrint() ? 0 : -1;
     }
@@ -59,6 +71,14 @@ class JSONDataWriter implements DataWriter {
         needComma = false;
     }
 
+    public void name(EncodedName name) throws IOException {
+        comma();
+        out.write(name.quoted);
+        if (indent<0)   out.write(':');
+        else            out.write(" : ");
+        needComma = false;
+    }
+
     protected void data(String v) throws IOException {
         comma();
         out.write(v);
@@ -101,7 +121,14 @@ class JSONDataWriter implements DataWriter {
     }
 
     public void value(String v) throws IOException {
-        StringBuilder buf = new StringBuilder(v.length());
+        data(quote(v));
+    }
+
+    /**
+     * Quotes and escapes a string value.
+     */
+    static String quote(String v) {
+        StringBuilder buf = new StringBuilder(v.length()+2);
         buf.append('\"');
         for( int i=0; i<v.length(); i++ ) {
             char c = v.charAt(i);
@@ -115,7 +142,7 @@ class JSONDataWriter implements DataWriter {
             }
         }
         buf.append('\"');
-        data(buf.toString());
+        return buf.toString();
     }
 
     public void valueNull() throws IOException {
@@ -147,15 +174,21 @@ class JSONDataWriter implements DataWriter {
 
     @Override
     public void type(Type expected, Class actual) throws IOException {
-        classAttr = config.getClassAttribute().print(expected, actual);
+        String s = config.getClassAttribute().print(expected, actual);
+        classAttr = s!=null ? EncodedName.jsonValueOf(s) : null;
+    }
+
+    public void type(EncodedName classAttr) {
+        this.classAttr = classAttr;
     }
 
     public void startObject() throws IOException {
         _startObject();
 
         if (classAttr!=null) {
-            name(CLASS_PROPERTY_NAME);
-            value(classAttr);
+            name(EncodedName.CLASS_PROPERTY_NAME);
+            comma();
+            out.write(classAttr.jsonValue);
             classAttr = null;
         }
     }
@@ -168,6 +201,112 @@ class JSONDataWriter implements DataWriter {
         close('}');
     }
 
+    public void mark() {
+        if (markDepth==marks.length)
+            marks = Arrays.copyOf(marks, marks.length*2);
+        Mark m = marks[markDepth];
+        if (m==null)
+            m = marks[markDepth] = new Mark();
+        markDepth++;
+
+        m.position = checkpoints.mark();
+        m.needComma = needComma;
+        m.indent = indent;
+        m.classAttr = classAttr;
+    }
+
+    public void commit() throws IOException {
+        markDepth--;
+        checkpoints.release();
+    }
+
+    public void rollback() {
+        Mark m = marks[--markDepth];
+        checkpoints.reset(m.position);
+        needComma = m.needComma;
+        indent = m.indent;
+        classAttr = m.classAttr;
+        m.classAttr = null;
+    }
+
+    private static final class Mark {
+        int position;
+        boolean needComma;
+        int indent;
+        EncodedName classAttr;
+    }
+
+    /**
+     * {@link Writer} that passes through the output unless there's an active mark,
+     * in which case the output is kept in a buffer that can be truncated.
+     */
+    private static final class Checkpoints extends Writer {
+        private final Writer out;
+        private final StringBuilder buffer = new StringBuilder();
+        private int depth;
+
+        Checkpoints(Writer out) {
+            this.out = out;
+        }
+
+        int mark() {
+            depth++;
+            return buffer.length();
+        }
+
+        void release() throws IOException {
+            if (--depth==0)
+                drain();
+        }
+
+        void reset(int position) {
+            buffer.setLength(position);
+            depth--;
+        }
+
+        private void drain() throws IOException {
+            if (buffer.length()>0) {
+                out.append(buffer);
+                buffer.setLength(0);
+            }
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (depth==0)   out.write(c);
+            else            buffer.append((char)c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            if (depth==0)   out.write(cbuf,off,len);
+            else            buffer.append(cbuf,off,len);
+        }
+
+        @Override
+        public void write(String str) throws IOException {
+            if (depth==0)   out.write(str);
+            else            buffer.append(str);
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            if (depth==0)   out.write(str,off,len);
+            else            buffer.append(str,off,off+len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // anything held back for a mark is not ready to be sent yet
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
     private static final char[] INDENT = new char[32];
     static {
         for (int i=0; i<INDENT.length; i++)
@@ -0,0 +1,31 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+
+/**
+ * {@link DataWriter} that can take back what it has written.
+ *
+ * <p>
+ * {@link Property} uses this to skip an element of an array or a map that fails to export halfway,
+ * without buffering every element separately.
+ *
+ * <p>
+ * Marks nest, and every {@link #mark()} needs to be ended by either {@link #commit()} or {@link #rollback()}.
+ */
+interface MarkableDataWriter extends DataWriter {
+    /**
+     * Remembers the current state, so that everything written from now on can be
+     * discarded by {@link #rollback()}.
+     */
+    void mark();
+
+    /**
+     * Keeps everything written since the last {@link #mark()}.
+     */
+    void commit() throws IOException;
+
+    /**
+     * Discards everything written since the last {@link #mark()} and restores the state back then.
+     */
+    void rollback();
+}
@@ -27,6 +27,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -71,6 +72,13 @@ public class Model<T> {
 
     private final Set<String> propertyNames = new HashSet<String>();
 
+    /**
+     * {@link #type} as the class attribute, in its full and simple forms.
+     *
+     * @see ClassAttributeBehaviour#encode(Model)
+     */
+    /*package*/ final EncodedName className, simpleClassName;
+
     /*package*/ Model(ModelBuilder parent, Class<T> type, @CheckForNull Class<?> propertyOwner, @Nullable String property) throws NotExportableException {
         this.parent = parent;
         this.type = type;
@@ -79,6 +87,8 @@ public class Model<T> {
             throw propertyOwner != null ? new NotExportableException(type, propertyOwner, property) : new NotExportableException(type);
         }
         this.defaultVisibility = eb.defaultVisibility();
+        this.className = new EncodedName(type.getName());
+        this.simpleClassName = new EncodedName(type.getSimpleName());
 
         Class<? super T> sc = type.getSuperclass();
         if(sc!=null && sc.getAnnotation(ExportedBean.class)!=null)
@@ -111,6 +121,8 @@ public class Model<T> {
 
         this.properties = properties.toArray(new Property[properties.size()]);
         Arrays.sort(this.properties);
+        for (int i=0; i<this.properties.length; i++)
+            this.properties[i].index = i;
         for (Property p : properties)
             this.propertyNames.add(p.name);
 
@@ -189,11 +201,7 @@ public class Model<T> {
      *      Controls which portion of the object graph will be sent to the writer.
      */
     public void writeTo(T object, TreePruner pruner, DataWriter writer) throws IOException {
-        try {
-            writer.type(null,object.getClass());
-        } catch (AbstractMethodError _) {
-            // legacy client that doesn't understand this
-        }
+        writeType(null, object.getClass(), writer);
         writer.startObject();
         writeNestedObjectTo(object, pruner, writer);
         writer.endObject();
@@ -218,6 +226,23 @@ public class Model<T> {
         writeTo(object,new ByDepth(1-baseVisibility),writer);
     }
 
+    /**
+     * Calls {@link DataWriter#type(Type, Class)} for an instance of this model,
+     * using the encoded class name if possible.
+     */
+    /*package*/ void writeType(Type expected, Class actual, DataWriter writer) throws IOException {
+        if (actual==type && writer instanceof EncodedNameWriter) {
+            ClassAttributeBehaviour cab = writer.getExportConfig().getClassAttribute();
+            ((EncodedNameWriter) writer).type(cab.map(expected, actual)!=null ? cab.encode(this) : null);
+            return;
+        }
+        try {
+            writer.type(expected, actual);
+        } catch (AbstractMethodError _) {
+            // legacy client that doesn't understand this
+        }
+    }
+
     void writeNestedObjectTo(T object, TreePruner pruner, DataWriter writer) throws IOException {
         if (superModel != null) {
             superModel.writeNestedObjectTo(object, new FilteringTreePruner(HAS_PROPERTY_NAME,pruner), writer);
@@ -41,6 +41,12 @@ public class ModelBuilder {
      */
     /*package*/ final Map<Class, Model> models = new ConcurrentHashMap<Class, Model>();
 
+    /**
+     * How values of a given class are written, including negative results for classes that aren't
+     * {@link ExportedBean}.
+     */
+    private final Map<Class, ValueKind> kinds = new ConcurrentHashMap<Class, ValueKind>();
+
     public <T> Model<T> get(Class<T> type) throws NotExportableException {
         return get(type, null, null);
     }
@@ -48,8 +54,21 @@ public class ModelBuilder {
     public <T> Model<T> get(Class<T> type, @CheckForNull Class<?> propertyOwner, @Nullable String property) throws NotExportableException {
         Model m = models.get(type);
         if(m==null) {
+            ValueKind k = getKind(type);
+            if (k!=ValueKind.MODEL && k!=ValueKind.CUSTOM) // CustomExportedBean may or may not be an ExportedBean
+                throw propertyOwner != null ? new NotExportableException(type, propertyOwner, property) : new NotExportableException(type);
             m = new Model<T>(this, type, propertyOwner, property);
         }
         return m;
     }
+
+    /**
+     * Determines how values of the given class are written out.
+     */
+    /*package*/ ValueKind getKind(Class<?> type) {
+        ValueKind k = kinds.get(type);
+        if (k==null)
+            kinds.put(type, k = ValueKind.of(type));
+        return k;
+    }
 }
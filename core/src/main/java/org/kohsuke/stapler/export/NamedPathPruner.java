@@ -23,8 +23,13 @@
 
 package org.kohsuke.stapler.export;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -35,6 +40,33 @@ public final class NamedPathPruner extends TreePruner {
     static class Tree {
         final Map<String,Tree> children = new TreeMap<String,Tree>();
         Range range = Range.ALL;
+
+        /**
+         * Pruner for this subtree, so that {@link #accept(Object, Property)} doesn't create one every time.
+         */
+        final NamedPathPruner pruner = new NamedPathPruner(this);
+
+        /**
+         * {@link #children} resolved against the properties of each {@link Model}, indexed by {@link Property#index}.
+         * Null elements are the properties that are not in this tree.
+         */
+        private final Map<Model,NamedPathPruner[]> compiled = new ConcurrentHashMap<Model,NamedPathPruner[]>();
+
+        NamedPathPruner[] compile(Model<?> model) {
+            NamedPathPruner[] r = compiled.get(model);
+            if (r==null) {
+                List<Property> properties = model.getProperties();
+                r = new NamedPathPruner[properties.size()];
+                for (Property p : properties) {
+                    Tree subtree = children.get(p.name);
+                    if (subtree==null)  subtree=children.get("*");
+                    r[p.index] = subtree!=null ? subtree.pruner : null;
+                }
+                compiled.put(model, r);
+            }
+            return r;
+        }
+
         public @Override String toString() {return children.toString();}
     }
 
@@ -169,6 +201,21 @@ public final class NamedPathPruner extends TreePruner {
     public NamedPathPruner(String spec) throws IllegalArgumentException {
         this(parse(spec));
     }
+
+    /**
+     * Parses a textual specification, or reuses the result of an earlier call with the same specification.
+     * Since a pruner has no state, one instance can be used by any number of requests concurrently.
+     *
+     * @see #NamedPathPruner(String)
+     */
+    public static NamedPathPruner of(String spec) throws IllegalArgumentException {
+        NamedPathPruner p = CACHE.getIfPresent(spec);
+        if (p==null) {
+            p = parse(spec).pruner;
+            CACHE.put(spec, p);
+        }
+        return p;
+    }
     
     private NamedPathPruner(Tree tree) {
         this.tree = tree;
@@ -177,13 +224,16 @@ public final class NamedPathPruner extends TreePruner {
     public @Override TreePruner accept(Object node, Property prop) {
         if (prop.merge)     return this;
 
-        Tree subtree = tree.children.get(prop.name);
-        if (subtree==null)  subtree=tree.children.get("*");
-        return subtree != null ? new NamedPathPruner(subtree) : null;
+        return tree.compile(prop.parent)[prop.index];
     }
 
     public @Override Range getRange() {
         return tree.range;
     }
 
+    /**
+     * Recently used tree expressions. Clients tend to poll with the same handful of them.
+     */
+    private static final Cache<String,NamedPathPruner> CACHE = CacheBuilder.newBuilder().maximumSize(Integer.getInteger(NamedPathPruner.class.getName()+".cacheSize", 256)).build();
+
 }
@@ -24,6 +24,9 @@
 package org.kohsuke.stapler.export;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
@@ -88,8 +91,18 @@ public abstract class Property implements Comparable<Property> {
 
     private String[] verboseMap;
 
+    /**
+     * Position of this property in {@link Model#getProperties()} of {@link #parent}.
+     */
+    /*package*/ int index;
+
     private final Type type;
 
+    /**
+     * {@link #name} encoded for {@link EncodedNameWriter}s.
+     */
+    private final EncodedName encodedName;
+
     Property(Model parent, String name, Type type, Exported exported) {
         this.parent = parent;
         this.owner = parent.parent;
@@ -107,6 +120,7 @@ public abstract class Property implements Comparable<Property> {
             this.verboseMap = null;
         else
             this.verboseMap = s;
+        this.encodedName = new EncodedName(this.name);
     }
 
     public int compareTo(Property that) {
@@ -151,7 +165,10 @@ public abstract class Property implements Comparable<Property> {
                 model.writeNestedObjectTo(d, new FilteringTreePruner(parent.HAS_PROPERTY_NAME_IN_ANCESTRY,child), writer);
             }
         } else {
-            writer.name(name);
+            if (writer instanceof EncodedNameWriter)
+                ((EncodedNameWriter) writer).name(encodedName);
+            else
+                writer.name(name);
             writeValue(type, d, child, writer);
         }
     }
@@ -171,16 +188,52 @@ public abstract class Property implements Comparable<Property> {
     }
 
     private void writeBuffered(Type expected, Object value, TreePruner pruner, DataWriter writer) throws IOException {
-        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
+        DataWriter buffer = startBuffer(writer);
+        boolean finished = false;
         try {
             writeValue(expected, value, pruner, buffer, true);
-            buffer.finished();
+            finished = true;
         } catch (IOException x) {
             if (x.getCause() instanceof InvocationTargetException) {
                 LOGGER.log(Level.WARNING, "skipping export of " + value, x);
             }
+        } finally {
+            endBuffer(writer, buffer, finished);
+        }
+    }
+
+    /**
+     * Starts writing an element that's skipped if it fails halfway.
+     *
+     * <p>
+     * {@link MarkableDataWriter} can take back what it has written, so the element is written
+     * straight to it. Other writers get the element through {@link BufferedDataWriter}.
+     *
+     * @return
+     *      {@link DataWriter} to write the element to.
+     */
+    private static DataWriter startBuffer(DataWriter writer) {
+        if (writer instanceof MarkableDataWriter) {
+            ((MarkableDataWriter) writer).mark();
+            return writer;
+        }
+        return new BufferedDataWriter(writer.getExportConfig());
+    }
+
+    /**
+     * Completes what {@link #startBuffer(DataWriter)} has started.
+     *
+     * @param finished
+     *      true if the element was written completely, false to discard it.
+     */
+    private static void endBuffer(DataWriter writer, DataWriter buffer, boolean finished) throws IOException {
+        if (buffer==writer) {
+            MarkableDataWriter w = (MarkableDataWriter) writer;
+            if (finished)   w.commit();
+            else            w.rollback();
+        } else if (finished) {
+            ((BufferedDataWriter) buffer).commit(writer);
         }
-        buffer.commit(writer);
     }
 
     /**
@@ -192,125 +245,113 @@ public abstract class Property implements Comparable<Property> {
             return;
         }
 
-        if(value instanceof CustomExportedBean) {
+        Class c = value.getClass();
+
+        switch (owner.getKind(c)) {
+        case CUSTOM:
             writeValue(expected,((CustomExportedBean)value).toExportedObject(),pruner,writer);
             return;
-        }
-
-        Class c = value.getClass();
+        case MODEL:
+            Model model = owner.get(c, parent.type, name);
 
-        Model model;
-        try {
-            model = owner.get(c, parent.type, name);
-        } catch (NotExportableException ex) {
-            if(STRING_TYPES.contains(c)) {
-                writer.value(value.toString());
-                return;
-            }
-            if(PRIMITIVE_TYPES.contains(c)) {
-                writer.valuePrimitive(value);
-                return;
-            }
+            model.writeType(expected, c, writer);
+            writer.startObject();
+            model.writeNestedObjectTo(value, pruner, writer);
+            writer.endObject();
+            return;
+        case STRING:
+            writer.value(value.toString());
+            return;
+        case PRIMITIVE:
+            writer.valuePrimitive(value);
+            return;
+        case ARRAY:
             Class act = c.getComponentType();
-            if (act !=null) { // array
-                Range r = pruner.getRange();
-                writer.startArray();
-                if (value instanceof Object[]) {
-                    // typical case
-                    for (Object item : r.apply((Object[]) value)) {
-                        writeBuffered(act, item, pruner, writer);
-                    }
-                } else {
-                    // more generic case
-                    int len = Math.min(r.max, Array.getLength(value));
-                    for (int i=r.min; i<len; i++) {
-                        writeBuffered(act, Array.get(value, i), pruner, writer);
-                    }
+            Range r = pruner.getRange();
+            writer.startArray();
+            if (value instanceof Object[]) {
+                // typical case
+                for (Object item : r.apply((Object[]) value)) {
+                    writeBuffered(act, item, pruner, writer);
                 }
-                writer.endArray();
-                return;
-            }
-            if(value instanceof Iterable) {
-                writer.startArray();
-                Type expectedItemType = Types.getTypeArgument(expected, 0, null);
-                for (Object item : pruner.getRange().apply((Iterable) value)) {
-                    writeBuffered(expectedItemType, item, pruner, writer);
+            } else {
+                // more generic case
+                int len = Math.min(r.max, Array.getLength(value));
+                for (int i=r.min; i<len; i++) {
+                    writeBuffered(act, Array.get(value, i), pruner, writer);
                 }
-                writer.endArray();
-                return;
             }
-            if(value instanceof Map) {
-                if (verboseMap!=null) {// verbose form
-                    writer.startArray();
-                    for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
-                        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
-                        try {
-                            writeStartObjectNullType(buffer);
-                            buffer.name(verboseMap[0]);
-                            writeValue(null, e.getKey(), pruner, buffer);
-                            buffer.name(verboseMap[1]);
-                            writeValue(null, e.getValue(), pruner, buffer);
-                            buffer.endObject();
-                            buffer.finished();
-                        } catch (IOException x) {
-                            if (x.getCause() instanceof InvocationTargetException) {
-                                LOGGER.log(Level.WARNING, "skipping export of " + e, x);
-                            }
+            writer.endArray();
+            return;
+        case ITERABLE:
+            writer.startArray();
+            Type expectedItemType = Types.getTypeArgument(expected, 0, null);
+            for (Object item : pruner.getRange().apply((Iterable) value)) {
+                writeBuffered(expectedItemType, item, pruner, writer);
+            }
+            writer.endArray();
+            return;
+        case MAP:
+            if (verboseMap!=null) {// verbose form
+                writer.startArray();
+                for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
+                    DataWriter buffer = startBuffer(writer);
+                    boolean finished = false;
+                    try {
+                        writeStartObjectNullType(buffer);
+                        buffer.name(verboseMap[0]);
+                        writeValue(null, e.getKey(), pruner, buffer);
+                        buffer.name(verboseMap[1]);
+                        writeValue(null, e.getValue(), pruner, buffer);
+                        buffer.endObject();
+                        finished = true;
+                    } catch (IOException x) {
+                        if (x.getCause() instanceof InvocationTargetException) {
+                            LOGGER.log(Level.WARNING, "skipping export of " + e, x);
                         }
-                        buffer.commit(writer);
+                    } finally {
+                        endBuffer(writer, buffer, finished);
                     }
-                    writer.endArray();
-                } else {// compact form
-                    writeStartObjectNullType(writer);
-                    for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
-                        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
-                        try {
-                            buffer.name(e.getKey().toString());
-                            writeValue(null, e.getValue(), pruner, buffer);
-                            buffer.finished();
-                        } catch (IOException x) {
-                            if (x.getCause() instanceof InvocationTargetException) {
-                                LOGGER.log(Level.WARNING, "skipping export of " + e, x);
-                            }
+                }
+                writer.endArray();
+            } else {// compact form
+                writeStartObjectNullType(writer);
+                for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
+                    DataWriter buffer = startBuffer(writer);
+                    boolean finished = false;
+                    try {
+                        buffer.name(e.getKey().toString());
+                        writeValue(null, e.getValue(), pruner, buffer);
+                        finished = true;
+                    } catch (IOException x) {
+                        if (x.getCause() instanceof InvocationTargetException) {
+                            LOGGER.log(Level.WARNING, "skipping export of " + e, x);
                         }
-                        buffer.commit(writer);
+                    } finally {
+                        endBuffer(writer, buffer, finished);
                     }
-                    writer.endObject();
                 }
-                return;
-            }
-            if(value instanceof Date) {
-                writer.valuePrimitive(((Date) value).getTime());
-                return;
-            }
-            if(value instanceof Calendar) {
-                writer.valuePrimitive(((Calendar) value).getTimeInMillis());
-                return;
-            }
-            if(value instanceof Enum) {
-                writer.value(value.toString());
-                return;
+                writer.endObject();
             }
-
+            return;
+        case DATE:
+            writer.valuePrimitive(((Date) value).getTime());
+            return;
+        case CALENDAR:
+            writer.valuePrimitive(((Calendar) value).getTimeInMillis());
+            return;
+        case ENUM:
+            writer.value(value.toString());
+            return;
+        default:
             if (skipIfFail) {
                 writer.startObject();
                 writer.endObject();
                 return;
             }
 
-            throw ex;
-        }
-
-        try {
-            writer.type(expected, value.getClass());
-        } catch (AbstractMethodError _) {
-            // legacy impl that doesn't understand it
+            throw new NotExportableException(c, parent.type, name);
         }
-
-
-        writer.startObject();
-        model.writeNestedObjectTo(value, pruner, writer);
-        writer.endObject();
     }
 
     private static class BufferedDataWriter implements DataWriter {
@@ -335,7 +376,6 @@ public abstract class Property implements Comparable<Property> {
             }
         }
         final List<Step> steps = new ArrayList<Step>();
-        boolean finished = false;
         @Override
         public void name(String name) throws IOException {
             steps.add(new Step(Op.name, name));
@@ -372,13 +412,7 @@ public abstract class Property implements Comparable<Property> {
         public void endObject() throws IOException {
             steps.add(new Step(Op.endObject));
         }
-        private void finished() {
-            finished = true;
-        }
         void commit(DataWriter w) throws IOException {
-            if (!finished) {
-                return;
-            }
             for (Step step : steps) {
                 switch (step.op) {
                 case name:
@@ -426,6 +460,17 @@ public abstract class Property implements Comparable<Property> {
         writer.startObject();
     }
 
+    /**
+     * Adapts a {@link MethodHandle} that reads a property to {@code (Object)Object},
+     * so that {@link #getValue(Object)} can call it through {@link MethodHandle#invokeExact(Object...)}
+     * and the JIT can inline it.
+     */
+    static MethodHandle accessor(MethodHandle h, boolean isStatic) {
+        if (isStatic)
+            h = MethodHandles.dropArguments(h, 0, Object.class);
+        return h.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
     /**
      * Gets the value of this property from the bean.
      */
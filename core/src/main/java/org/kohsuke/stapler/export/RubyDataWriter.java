@@ -48,6 +48,14 @@ final class RubyDataWriter extends JSONDataWriter {
         needComma = false;
     }
 
+    @Override
+    public void name(EncodedName name) throws IOException {
+        comma();
+        out.write(name.quoted);
+        out.write(" => ");
+        needComma = false;
+    }
+
     public void valueNull() throws IOException {
         data("nil");
     }
@@ -0,0 +1,330 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * JSON writer that encodes the output into UTF-8 bytes by itself and writes them straight to an {@link OutputStream}.
+ *
+ * <p>
+ * Produces exactly the same output as {@link JSONDataWriter} would through an UTF-8 {@link java.io.Writer},
+ * but without the per-character work of {@link java.io.Writer}s and encoders. The output is accumulated
+ * in a buffer that's reused across requests by the same thread, and sent out in large chunks.
+ * Everything is sent out once the outermost object or array is closed, so there's no need to flush this writer.
+ *
+ * @see Flavor#createDataWriter(Object, OutputStream, ExportConfig)
+ */
+final class StreamingJSONDataWriter implements MarkableDataWriter, EncodedNameWriter {
+    private final OutputStream out;
+    private final ExportConfig config;
+
+    private boolean needComma;
+    private int indent;
+    private EncodedName classAttr;
+
+    /**
+     * Number of objects and arrays that are currently open.
+     */
+    private int depth;
+
+    /**
+     * Output that's not sent yet. Null when nothing is buffered and the buffer is back in the pool.
+     */
+    private byte[] buf;
+    private int pos;
+
+    /**
+     * States saved by {@link #mark()}, innermost last. Reused across marks to avoid allocation.
+     */
+    private Mark[] marks = new Mark[4];
+    private int markDepth;
+
+    StreamingJSONDataWriter(OutputStream out, ExportConfig config) {
+        this.out = out;
+        this.config = config;
+        indent = config.isPrettyPrint() ? 0 : -1;
+    }
+
+    @Override
+    public @Nonnull ExportConfig getExportConfig() {
+        return config;
+    }
+
+    public void name(String name) throws IOException {
+        comma();
+        write('"');
+        writeRaw(name);
+        write('"');
+        colon();
+    }
+
+    public void name(EncodedName name) throws IOException {
+        comma();
+        write(name.quotedUtf8);
+        colon();
+    }
+
+    private void colon() throws IOException {
+        if (indent<0)   write(':');
+        else            write(COLON);
+        needComma = false;
+    }
+
+    private void comma() throws IOException {
+        if(needComma) {
+            write(',');
+            indent();
+        }
+        needComma = true;
+    }
+
+    private void indent() throws IOException {
+        if (indent>=0) {
+            write('\n');
+            for (int i=indent*2; i>0; i--)
+                write(' ');
+        }
+    }
+
+    public void valuePrimitive(Object v) throws IOException {
+        comma();
+        writeRaw(v.toString());
+        done();
+    }
+
+    public void value(String v) throws IOException {
+        comma();
+        write('"');
+        int len = v.length();
+        for (int i=0; i<len; i++) {
+            char c = v.charAt(i);
+            if (c<0x80) {
+                byte[] e = ESCAPES[c];
+                if (e==null)    write(c);
+                else            write(e);
+            } else {
+                i = writeNonAscii(v, i);
+            }
+        }
+        write('"');
+        done();
+    }
+
+    public void valueNull() throws IOException {
+        comma();
+        write(NULL);
+        done();
+    }
+
+    private void open(char symbol) throws IOException {
+        comma();
+        write(symbol);
+        needComma = false;
+        depth++;
+        if (indent>=0)  indent++;
+        indent();
+    }
+
+    private void close(char symbol) throws IOException {
+        if (indent>=0)  indent--;
+        indent();
+        needComma = true;
+        write(symbol);
+        depth--;
+        done();
+    }
+
+    public void startArray() throws IOException {
+        open('[');
+    }
+
+    public void endArray() throws IOException {
+        close(']');
+    }
+
+    @Override
+    public void type(Type expected, Class actual) throws IOException {
+        String s = config.getClassAttribute().print(expected, actual);
+        classAttr = s!=null ? EncodedName.jsonValueUtf8Of(s) : null;
+    }
+
+    public void type(EncodedName classAttr) {
+        this.classAttr = classAttr;
+    }
+
+    public void startObject() throws IOException {
+        open('{');
+
+        if (classAttr!=null) {
+            name(EncodedName.CLASS_PROPERTY_NAME);
+            comma();
+            write(classAttr.jsonValueUtf8);
+            classAttr = null;
+        }
+    }
+
+    public void endObject() throws IOException {
+        close('}');
+    }
+
+    public void mark() {
+        if (markDepth==marks.length)
+            marks = Arrays.copyOf(marks, marks.length*2);
+        Mark m = marks[markDepth];
+        if (m==null)
+            m = marks[markDepth] = new Mark();
+        markDepth++;
+
+        m.position = pos;
+        m.needComma = needComma;
+        m.indent = indent;
+        m.depth = depth;
+        m.classAttr = classAttr;
+    }
+
+    public void commit() throws IOException {
+        markDepth--;
+    }
+
+    public void rollback() {
+        Mark m = marks[--markDepth];
+        pos = m.position;
+        needComma = m.needComma;
+        indent = m.indent;
+        depth = m.depth;
+        classAttr = m.classAttr;
+        m.classAttr = null;
+    }
+
+    private static final class Mark {
+        int position;
+        boolean needComma;
+        int indent;
+        int depth;
+        EncodedName classAttr;
+    }
+
+    /**
+     * Sends out everything once the top-level value is complete.
+     */
+    private void done() throws IOException {
+        if (depth==0 && markDepth==0 && buf!=null) {
+            out.write(buf, 0, pos);
+            release(buf);
+            buf = null;
+            pos = 0;
+        }
+    }
+
+    /**
+     * Makes sure the buffer has room for the given number of bytes.
+     */
+    private void reserve(int n) throws IOException {
+        if (buf==null) {
+            buf = acquire();
+            pos = 0;
+        }
+        if (pos+n<=buf.length)  return;
+
+        if (markDepth==0) {
+            // nothing can be taken back, so it's safe to send out what we have so far
+            out.write(buf, 0, pos);
+            pos = 0;
+            if (n<=buf.length)  return;
+        }
+        buf = Arrays.copyOf(buf, Math.max(buf.length*2, pos+n));
+    }
+
+    private void write(char asciiChar) throws IOException {
+        if (buf==null || pos==buf.length)
+            reserve(1);
+        buf[pos++] = (byte)asciiChar;
+    }
+
+    private void write(byte[] b) throws IOException {
+        reserve(b.length);
+        System.arraycopy(b, 0, buf, pos, b.length);
+        pos += b.length;
+    }
+
+    /**
+     * Writes a string without any escaping.
+     */
+    private void writeRaw(String s) throws IOException {
+        int len = s.length();
+        for (int i=0; i<len; i++) {
+            char c = s.charAt(i);
+            if (c<0x80)     write(c);
+            else            i = writeNonAscii(s, i);
+        }
+    }
+
+    /**
+     * Encodes the non-ASCII character at the given index.
+     *
+     * @return
+     *      the index of the last character consumed, which is different from {@code i} for a surrogate pair.
+     */
+    private int writeNonAscii(String s, int i) throws IOException {
+        reserve(4);
+        char c = s.charAt(i);
+        if (c<0x800) {
+            buf[pos++] = (byte)(0xC0 | (c>>6));
+            buf[pos++] = (byte)(0x80 | (c&0x3F));
+        } else if (Character.isSurrogate(c)) {
+            if (Character.isHighSurrogate(c) && i+1<s.length() && Character.isLowSurrogate(s.charAt(i+1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[pos++] = (byte)(0xF0 | (cp>>18));
+                buf[pos++] = (byte)(0x80 | ((cp>>12)&0x3F));
+                buf[pos++] = (byte)(0x80 | ((cp>>6)&0x3F));
+                buf[pos++] = (byte)(0x80 | (cp&0x3F));
+            } else {
+                // malformed. do the same as the UTF-8 encoder of the JDK
+                buf[pos++] = '?';
+            }
+        } else {
+            buf[pos++] = (byte)(0xE0 | (c>>12));
+            buf[pos++] = (byte)(0x80 | ((c>>6)&0x3F));
+            buf[pos++] = (byte)(0x80 | (c&0x3F));
+        }
+        return i;
+    }
+
+    private static byte[] acquire() {
+        byte[] b = POOL.get();
+        if (b==null)    return new byte[BUFFER_SIZE];
+        POOL.set(null);
+        return b;
+    }
+
+    private static void release(byte[] b) {
+        if (b.length==BUFFER_SIZE)    // don't hold on to a buffer that grew large
+            POOL.set(b);
+    }
+
+    private static final int BUFFER_SIZE = 16*1024;
+
+    /**
+     * One idle buffer per thread, which is normally a request handling thread.
+     */
+    private static final ThreadLocal<byte[]> POOL = new ThreadLocal<byte[]>();
+
+    /**
+     * Escape sequences of ASCII characters, or null if the character is written as is.
+     * Only escapes what {@link JSONDataWriter#value(String)} escapes.
+     */
+    private static final byte[][] ESCAPES = new byte[0x80][];
+    static {
+        ESCAPES['"'] = new byte[] {'\\','"'};
+        ESCAPES['\\'] = new byte[] {'\\','\\'};
+        ESCAPES['\n'] = new byte[] {'\\','n'};
+        ESCAPES['\r'] = new byte[] {'\\','r'};
+        ESCAPES['\t'] = new byte[] {'\\','t'};
+    }
+
+    private static final byte[] NULL = {'n','u','l','l'};
+    private static final byte[] COLON = {' ',':',' '};
+}
@@ -0,0 +1,61 @@
+package org.kohsuke.stapler.export;
+
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Classification of a value type that determines how {@link Property} writes it out.
+ *
+ * <p>
+ * Computed once per class and cached in {@link ModelBuilder}, so that writing a value
+ * doesn't involve trying {@link ModelBuilder#get(Class)} and catching {@link NotExportableException}
+ * for every string, number, or collection.
+ *
+ * @see ModelBuilder#getKind(Class)
+ */
+enum ValueKind {
+    /**
+     * {@link CustomExportedBean}, whose replacement is written instead.
+     */
+    CUSTOM,
+    /**
+     * {@link ExportedBean}, written through its {@link Model}.
+     */
+    MODEL,
+    /**
+     * One of {@link Property#STRING_TYPES}.
+     */
+    STRING,
+    /**
+     * One of {@link Property#PRIMITIVE_TYPES}.
+     */
+    PRIMITIVE,
+    ARRAY,
+    ITERABLE,
+    MAP,
+    DATE,
+    CALENDAR,
+    ENUM,
+    /**
+     * None of the above. Cannot be exported.
+     */
+    UNSUPPORTED;
+
+    /**
+     * Classifies the given type, in the order of preference {@link Property} has always used.
+     */
+    static ValueKind of(Class<?> c) {
+        if (CustomExportedBean.class.isAssignableFrom(c))   return CUSTOM;
+        if (c.getAnnotation(ExportedBean.class)!=null)      return MODEL;
+        if (Property.STRING_TYPES.contains(c))              return STRING;
+        if (Property.PRIMITIVE_TYPES.contains(c))           return PRIMITIVE;
+        if (c.getComponentType()!=null)                     return ARRAY;
+        if (Iterable.class.isAssignableFrom(c))             return ITERABLE;
+        if (Map.class.isAssignableFrom(c))                  return MAP;
+        if (Date.class.isAssignableFrom(c))                 return DATE;
+        if (Calendar.class.isAssignableFrom(c))             return CALENDAR;
+        if (Enum.class.isAssignableFrom(c))                 return ENUM;
+        return UNSUPPORTED;
+    }
+}
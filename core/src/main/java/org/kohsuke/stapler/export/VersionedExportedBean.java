@@ -0,0 +1,30 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Implemented by {@link ExportedBean}s that can tell when their exported form changes,
+ * such as records of things that have completed and never change afterward.
+ *
+ * <p>
+ * {@link org.kohsuke.stapler.StaplerResponse#serveExposedBean} uses the version to compute an ETag,
+ * answers a matching <tt>If-None-Match</tt> with 304 without writing the bean at all,
+ * and, if enabled, serves the response from a cache of rendered responses.
+ *
+ * <p>
+ * The rendered responses are shared by everyone who requests the same URL, so the exported form
+ * of a versioned bean must not depend on who requests it, for example through permission checks.
+ * Beans whose exported form does must not implement this interface.
+ *
+ * @see CustomExportedBean
+ */
+public interface VersionedExportedBean {
+    /**
+     * Returns a string that changes whenever anything exported from this object changes,
+     * including the objects that it exposes.
+     *
+     * @return
+     *      null if the version cannot be determined, in which case the response is written as usual.
+     */
+    @CheckForNull String getExportVersion();
+}
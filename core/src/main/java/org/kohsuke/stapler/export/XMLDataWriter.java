@@ -38,10 +38,15 @@ import java.beans.Introspector;
  *
  * @author Kohsuke Kawaguchi
  */
-final class XMLDataWriter implements DataWriter {
+final class XMLDataWriter implements EncodedNameWriter {
 
     private String name;
+    /**
+     * {@link #name} encoded ahead of time, if it came from {@link #name(EncodedName)}.
+     */
+    private EncodedName encodedName;
     private final Stack<String> objectNames = new Stack<String>();
+    private final Stack<EncodedName> encodedObjectNames = new Stack<EncodedName>();
     /**
      * Stack that keeps track of whether we are inside an array.
      * The top element represents the current state.
@@ -75,6 +80,12 @@ final class XMLDataWriter implements DataWriter {
 
     public void name(String name) {
         this.name = name;
+        this.encodedName = null;
+    }
+
+    public void name(EncodedName name) {
+        this.name = name.name;
+        this.encodedName = name;
     }
 
     public void valuePrimitive(Object v) throws IOException {
@@ -83,9 +94,13 @@ final class XMLDataWriter implements DataWriter {
 
     public void value(String v) throws IOException {
         String n = adjustName();
-        out.write('<'+n+'>');
+        out.write('<');
+        out.write(n);
+        out.write('>');
         out.write(Stapler.escape(v));
-        out.write("</"+n+'>');
+        out.write("</");
+        out.write(n);
+        out.write('>');
     }
 
     public void valueNull() {
@@ -107,13 +122,21 @@ final class XMLDataWriter implements DataWriter {
         classAttr = config.getClassAttribute().print(expected, actual);
     }
 
+    public void type(EncodedName classAttr) {
+        this.classAttr = classAttr!=null ? classAttr.name : null;
+    }
+
     public void startObject() throws IOException {
         objectNames.push(name);
-        out.write('<' + adjustName());
+        encodedObjectNames.push(encodedName);
+        out.write('<');
+        out.write(adjustName());
         isArray.push(false);
 
         if (classAttr!=null) {
-            out.write(CLASS_ATTRIBUTE_PREFIX +classAttr+"'");
+            out.write(CLASS_ATTRIBUTE_PREFIX);
+            out.write(classAttr);
+            out.write('\'');
             classAttr = null;
         }
         out.write('>');
@@ -122,7 +145,10 @@ final class XMLDataWriter implements DataWriter {
     public void endObject() throws IOException {
         isArray.pop();
         name = objectNames.pop();
-        out.write("</"+adjustName()+'>');
+        encodedName = encodedObjectNames.pop();
+        out.write("</");
+        out.write(adjustName());
+        out.write('>');
     }
 
     /**
@@ -130,6 +156,8 @@ final class XMLDataWriter implements DataWriter {
      * by considering {@link #isArray}
      */
     private String adjustName() {
+        if (encodedName!=null)
+            return isArray.peek() ? encodedName.xmlSingularName : encodedName.xmlName;
         String escaped = makeXmlName(name);
         if(isArray.peek()) return toSingular(escaped);
         return escaped;
@@ -0,0 +1,121 @@
+package org.kohsuke.stapler.jsr269;
+
+import org.kohsuke.MetaInfServices;
+import org.kohsuke.stapler.WebMethod;
+import org.kohsuke.stapler.bind.JavaScriptMethod;
+
+import javax.annotation.processing.Processor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Records the parameter names of the web methods of each class into
+ * <tt>META-INF/stapler/routes/<i>binary class name</i>.stapler</tt>,
+ * so that they can be determined at runtime without parsing the class file.
+ *
+ * <p>
+ * Keys are the method names followed by the erased parameter types, like <tt>doFoo(java.lang.String,int[])</tt>,
+ * and values are comma-separated parameter names.
+ */
+@SuppressWarnings({"Since15"})
+@SupportedAnnotationTypes("*")
+@MetaInfServices(Processor.class)
+public class RoutingIndexProcessor extends AbstractProcessorImpl {
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        try {
+            for (TypeElement t : ElementFilter.typesIn(roundEnv.getRootElements()))
+                scan(t);
+        } catch (IOException e) {
+            error(e);
+        } catch (RuntimeException e) {
+            // javac sucks at reporting errors in annotation processors
+            e.printStackTrace();
+            throw e;
+        } catch (Error e) {
+            e.printStackTrace();
+            throw e;
+        }
+        return false;
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latest();
+    }
+
+    private void scan(TypeElement t) throws IOException {
+        Properties p = new Properties();
+        for (ExecutableElement m : ElementFilter.methodsIn(t.getEnclosedElements())) {
+            if (isWebMethod(m))
+                p.put(key(m), names(m));
+        }
+        if (!p.isEmpty()) {
+            String name = "META-INF/stapler/routes/" + processingEnv.getElementUtils().getBinaryName(t) + ".stapler";
+            writePropertyFile(p, name);
+        }
+
+        for (TypeElement nested : ElementFilter.typesIn(t.getEnclosedElements()))
+            scan(nested);
+    }
+
+    /**
+     * Could this method be bound to a request with its parameters injected by name?
+     * Getters aren't, and methods without parameters have no names to record.
+     */
+    private boolean isWebMethod(ExecutableElement m) {
+        if (!m.getModifiers().contains(Modifier.PUBLIC) || m.getParameters().isEmpty())
+            return false;
+        String n = m.getSimpleName().toString();
+        return n.startsWith("do") || n.startsWith("js")
+            || m.getAnnotation(WebMethod.class)!=null || m.getAnnotation(JavaScriptMethod.class)!=null;
+    }
+
+    private String key(ExecutableElement m) {
+        StringBuilder buf = new StringBuilder(m.getSimpleName()).append('(');
+        boolean first = true;
+        for (VariableElement p : m.getParameters()) {
+            if (!first) buf.append(',');
+            first = false;
+            appendTypeName(processingEnv.getTypeUtils().erasure(p.asType()), buf);
+        }
+        return buf.append(')').toString();
+    }
+
+    /**
+     * Appends the name of an erased type the way <tt>RoutingIndex</tt> names a {@link Class}.
+     */
+    private void appendTypeName(TypeMirror t, StringBuilder buf) {
+        if (t.getKind()==TypeKind.ARRAY) {
+            appendTypeName(((ArrayType) t).getComponentType(), buf);
+            buf.append("[]");
+        } else if (t.getKind()==TypeKind.DECLARED) {
+            buf.append(processingEnv.getElementUtils().getBinaryName((TypeElement) ((DeclaredType) t).asElement()));
+        } else {
+            buf.append(t.getKind().name().toLowerCase(Locale.ENGLISH));
+        }
+    }
+
+    private static String names(ExecutableElement m) {
+        StringBuilder buf = new StringBuilder();
+        for (VariableElement p : m.getParameters()) {
+            if (buf.length()>0) buf.append(',');
+            buf.append(p.getSimpleName());
+        }
+        return buf.toString();
+    }
+}
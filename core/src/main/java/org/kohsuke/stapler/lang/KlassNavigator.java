@@ -213,7 +213,7 @@ public abstract class KlassNavigator<C> {
         public List<Function> getFunctions(Class clazz) {
             // Historically ClassDescriptor used to own this non-trivial logic of computing
             // valid functions for the class, so we'll keep it there.
-            return new ClassDescriptor(clazz).methods;
+            return ClassDescriptor.get(clazz).methods;
         }
     };
 }
@@ -0,0 +1,64 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class BindingDescriptorTest extends TestCase {
+    public static class Base {
+        @DataBoundSetter
+        private int x;
+
+        @DataBoundSetter
+        public void setName(String name) {}
+    }
+
+    public static class Derived extends Base {
+        @DataBoundSetter
+        private String x;
+
+        @DataBoundConstructor
+        public Derived(String id, int count) {}
+
+        @DataBoundSetter
+        public void setName(String name) {}
+
+        public void setIgnored(String s) {}
+    }
+
+    public static class Unbindable {
+        public Unbindable(String id) {}
+    }
+
+    public void testCachedPerClass() {
+        BindingDescriptor d = BindingDescriptor.get(Derived.class);
+        assertSame(d, BindingDescriptor.get(Derived.class));
+
+        assertEquals(Arrays.asList("id", "count"), Arrays.asList(d.getParameterNames()));
+        assertEquals(2, d.getConstructor().getParameterTypes().length);
+    }
+
+    public void testSetters() throws Exception {
+        BindingDescriptor d = BindingDescriptor.get(Derived.class);
+        // the most derived one wins
+        assertEquals(Derived.class, d.getSetterFields().get("x").getDeclaringClass());
+        assertEquals(Derived.class.getMethod("setName", String.class), d.getSetterMethods().get("name"));
+        assertFalse(d.getSetterMethods().containsKey("ignored"));
+    }
+
+    public void testFailureIsReportedEveryTime() {
+        IllegalArgumentException first = null;
+        for (int i=0; i<2; i++) {
+            try {
+                BindingDescriptor.get(Unbindable.class).getConstructor();
+                fail();
+            } catch (NoStaplerConstructorException e) {
+                // each caller gets its own exception
+                assertNotSame(first, e);
+                if (first!=null)
+                    assertEquals(first.getMessage(), e.getMessage());
+                first = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class ByteRangeTest extends TestCase {
+    public void testSingle() {
+        assertEquals("[0-499]", parse("bytes=0-499", 1000));
+        assertEquals("[500-999]", parse("bytes=500-", 1000));
+        assertEquals("[900-999]", parse("bytes=-100", 1000));
+        assertEquals("[0-999]", parse("bytes=-5000", 1000));
+        assertEquals("[990-999]", parse("Bytes=990-2000", 1000));
+    }
+
+    public void testMultiple() {
+        assertEquals("[0-0, 999-999]", parse("bytes=0-0,-1", 1000));
+        assertEquals("[0-199, 500-599]", parse("bytes=500-599, 0-99, 50-199", 1000));
+        // adjacent ranges are coalesced
+        assertEquals("[0-199]", parse("bytes=0-99,100-199", 1000));
+    }
+
+    public void testUnsatisfiable() {
+        assertEquals("[]", parse("bytes=1000-", 1000));
+        assertEquals("[]", parse("bytes=-0", 1000));
+        assertEquals("[]", parse("bytes=0-10", 0));
+        assertEquals("[0-9]", parse("bytes=2000-3000,0-9", 1000));
+    }
+
+    public void testIgnored() {
+        assertNull(ByteRange.parse("items=0-10", 1000));
+        assertNull(ByteRange.parse("bytes=", 1000));
+        assertNull(ByteRange.parse("bytes=10", 1000));
+        assertNull(ByteRange.parse("bytes=20-10", 1000));
+        assertNull(ByteRange.parse("bytes=+1-5", 1000));
+        assertNull(ByteRange.parse("bytes=a-b", 1000));
+
+        StringBuilder many = new StringBuilder("bytes=0-0");
+        for (int i=1; i<=ByteRange.MAX_RANGES; i++)
+            many.append(',').append(i*2).append('-').append(i*2);
+        assertNull(ByteRange.parse(many.toString(), 1000));
+    }
+
+    private static String parse(String header, long length) {
+        List<ByteRange> r = ByteRange.parse(header, length);
+        return String.valueOf(r);
+    }
+}
@@ -104,6 +104,17 @@ public class ClassDescriptorTest {
         public int x(@Nullable T t) { return 1; }
     }
 
+    @Test public void sharedDescriptor() {
+        ClassDescriptor d = ClassDescriptor.get(D.class);
+        assertSame(d, ClassDescriptor.get(D.class));
+        FunctionList x = d.methods.name("x");
+        assertEquals(1, x.size());
+        assertSame(x, d.methods.name("x"));
+        assertSame(d.methods.prefix("x"), d.methods.prefix("x"));
+        assertEquals(x, d.methods.annotated(AnnA.class));
+        assertEquals(0, d.methods.name("noSuchMethod").size());
+    }
+
     public static class D extends B<String> {
         @AnnA(3)
         public int x(String t) { return 2; }
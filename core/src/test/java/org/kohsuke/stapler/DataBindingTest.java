@@ -328,6 +328,84 @@ public class DataBindingTest extends TestCase {
         assertEquals(10,r.post);
     }
 
+    public static class Counter {
+        int count;
+        long total;
+        final List<String> events = new ArrayList<String>();
+
+        @DataBoundConstructor
+        public Counter() {
+        }
+
+        @DataBoundSetter
+        public void setCount(int count) {
+            this.count = count;
+            events.add("count");
+        }
+
+        @DataBoundSetter
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        @DataBoundSetter
+        public void setBroken(String s) {
+            throw new IllegalStateException();
+        }
+
+        @PostConstruct
+        private void init() {
+            events.add("init");
+        }
+    }
+
+    public static class DerivedCounter extends Counter {
+        @DataBoundConstructor
+        public DerivedCounter() {
+        }
+
+        @PostConstruct
+        private void init2() {
+            events.add("init2");
+        }
+    }
+
+    public void testPrimitiveSetters() {
+        Counter c = bind("{count:3,total:5}", Counter.class);
+        assertEquals(3, c.count);
+        assertEquals(5L, c.total);
+
+        // JSON null becomes the default value
+        c = bind("{count:null}", Counter.class);
+        assertEquals(0, c.count);
+    }
+
+    public void testSetterArgumentMismatch() {
+        for (final Object v : new Object[] {null, "three"}) {
+            try {
+                bind("{count:3}", Counter.class, new BindInterceptor() {
+                    @Override
+                    public Object onConvert(Type targetType, Class targetTypeErasure, Object jsonSource) {
+                        return targetType==int.class ? v : DEFAULT;
+                    }
+                });
+                fail("expected a failure for " + v);
+            } catch (IllegalArgumentException e) {
+                // as expected
+            }
+        }
+    }
+
+    public void testFailingSetterIsSkipped() {
+        Counter c = bind("{count:1,broken:'x'}", Counter.class);
+        assertEquals(1, c.count);
+    }
+
+    public void testPostConstructOrder() {
+        DerivedCounter c = bind("{count:1}", DerivedCounter.class);
+        assertEquals(Arrays.asList("count", "init", "init2"), c.events);
+    }
+
     public void testInterceptor1() {
         String r = bind("{x:1}", String.class, new BindInterceptor() {
             @Override
@@ -0,0 +1,63 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class DispatcherIndexTest extends TestCase {
+    private final Dispatcher view = new Unnamed("view");
+    private final Dispatcher foo = new Named("foo");
+    private final Dispatcher bar = new Named("bar");
+    private final Dispatcher dynamic = new Unnamed("dynamic");
+    private final Dispatcher foo2 = new Named("foo");
+
+    private final DispatcherIndex index = new DispatcherIndex(Arrays.asList(view, foo, bar, dynamic, foo2));
+
+    public void testNamedTokenKeepsOrderOfPreference() {
+        assertEquals(Arrays.asList(view, foo, dynamic, foo2), get("foo/zot"));
+        assertEquals(Arrays.asList(view, bar, dynamic), get("bar"));
+    }
+
+    public void testUnknownTokenFallsBackToUnnamedDispatchers() {
+        assertEquals(Arrays.asList(view, dynamic), get("zot"));
+    }
+
+    public void testEndOfUrl() {
+        assertEquals(Arrays.asList(view, dynamic), get(""));
+    }
+
+    private List<Dispatcher> get(String url) {
+        return Arrays.asList(index.get(new TokenList(url)));
+    }
+
+    private static class Named extends NameBasedDispatcher {
+        Named(String name) {
+            super(name);
+        }
+
+        protected boolean doDispatch(RequestImpl req, ResponseImpl rsp, Object node) {
+            return false;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static class Unnamed extends Dispatcher {
+        private final String name;
+
+        Unnamed(String name) {
+            this.name = name;
+        }
+
+        public boolean dispatch(RequestImpl req, ResponseImpl rsp, Object node) {
+            return false;
+        }
+
+        public String toString() {
+            return name;
+        }
+    }
+}
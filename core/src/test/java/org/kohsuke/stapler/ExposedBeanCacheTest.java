@@ -0,0 +1,65 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+import org.kohsuke.stapler.export.ClassAttributeBehaviour;
+import org.kohsuke.stapler.export.ExportConfig;
+import org.kohsuke.stapler.export.Flavor;
+import org.kohsuke.stapler.export.VersionedExportedBean;
+
+import javax.servlet.http.HttpServletRequest;
+
+import static org.mockito.Mockito.*;
+
+public class ExposedBeanCacheTest extends TestCase {
+    public static class Bean implements VersionedExportedBean {
+        String version;
+        Bean(String version) {
+            this.version = version;
+        }
+        public String getExportVersion() {
+            return version;
+        }
+    }
+
+    public void testEtag() {
+        ExportConfig json = new ExportConfig().withFlavor(Flavor.JSON);
+        String etag = ExposedBeanCache.etag(new Bean("1"), json, "a,b", null, null);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+        // ETags are per URL, so this alone doesn't tell the beans apart
+        assertEquals(etag, ExposedBeanCache.etag(new Bean("1"), json, "a,b", null, null));
+
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("2"), json, "a,b", null, null)));
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("1"), json, "a", null, null)));
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("1"), json, "a,b", null, "callback")));
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("1"), new ExportConfig().withFlavor(Flavor.XML), "a,b", null, null)));
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("1"), new ExportConfig().withFlavor(Flavor.JSON).withPrettyPrint(true), "a,b", null, null)));
+
+        assertNull(ExposedBeanCache.etag(new Bean(null), json, null, null, null));
+        assertNull(ExposedBeanCache.etag(new Object(), json, null, null, null));
+    }
+
+    public void testEtagOfEqualConfigs() {
+        ExportConfig a = new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.IF_NEEDED.simple());
+        ExportConfig b = new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.IF_NEEDED.simple());
+        String etag = ExposedBeanCache.etag(new Bean("1"), a, null, null, null);
+        assertEquals(etag, ExposedBeanCache.etag(new Bean("1"), b, null, null, null));
+        assertFalse(etag.equals(ExposedBeanCache.etag(new Bean("1"), new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.IF_NEEDED), null, null, null)));
+    }
+
+    public void testKey() {
+        String etag = ExposedBeanCache.etag(new Bean("1"), new ExportConfig().withFlavor(Flavor.JSON), null, null, null);
+        HttpServletRequest a = mock(HttpServletRequest.class);
+        when(a.getRequestURI()).thenReturn("/job/a/1/api/json");
+        HttpServletRequest b = mock(HttpServletRequest.class);
+        when(b.getRequestURI()).thenReturn("/job/b/1/api/json");
+        assertFalse(ExposedBeanCache.key(a, etag).equals(ExposedBeanCache.key(b, etag)));
+    }
+
+    public void testMatches() {
+        assertTrue(ExposedBeanCache.matches("\"abc\"", "\"abc\""));
+        assertTrue(ExposedBeanCache.matches("\"x\", W/\"abc\"", "\"abc\""));
+        assertTrue(ExposedBeanCache.matches("*", "\"abc\""));
+        assertFalse(ExposedBeanCache.matches("\"abcd\"", "\"abc\""));
+        assertFalse(ExposedBeanCache.matches(null, "\"abc\""));
+    }
+}
@@ -0,0 +1,65 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.InvocationTargetException;
+
+public class FunctionTest extends TestCase {
+    public static class Target {
+        public String concat(String a, int b) {
+            return a+b;
+        }
+        public int count(String... args) {
+            return args.length;
+        }
+        public void fail() {
+            throw new IllegalStateException("oops");
+        }
+        public String bound(String head, StaplerResponse rsp, Object unknown) {
+            return head+(rsp==null)+unknown;
+        }
+        public static String twice(String s) {
+            return s+s;
+        }
+    }
+
+    private Function function(String name, Class<?>... params) throws Exception {
+        return new Function.InstanceFunction(Target.class.getMethod(name, params));
+    }
+
+    public void testInvoke() throws Exception {
+        Target t = new Target();
+        assertEquals("a1", function("concat", String.class, int.class).invoke(null, null, t, "a", 1));
+        assertEquals(2, function("count", String[].class).invoke(null, null, t, (Object)new String[] {"x","y"}));
+    }
+
+    public void testStaticMethodIgnoresReceiver() throws Exception {
+        Function f = new Function.InstanceFunction(Target.class.getMethod("twice", String.class));
+        assertEquals("abab", f.invoke(null, null, null, "ab"));
+    }
+
+    public void testExceptionIsWrapped() throws Exception {
+        try {
+            function("fail").invoke(null, null, new Target());
+            fail();
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getTargetException() instanceof IllegalStateException);
+        }
+    }
+
+    public void testWrongNumberOfArguments() throws Exception {
+        try {
+            function("concat", String.class, int.class).invoke(null, null, new Target(), "a");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    public void testBindAndInvoke() throws Exception {
+        Function f = function("bound", String.class, StaplerResponse.class, Object.class);
+        // the second call goes through the resolvers computed by the first one
+        for (int i=0; i<2; i++)
+            assertEquals("xtruenull", f.bindAndInvoke(new Target(), null, null, "x"));
+    }
+}
@@ -0,0 +1,51 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class HttpDatesTest extends TestCase {
+    public void testFormat() {
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDates.format(784111777000L));
+        assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpDates.format(0));
+        assertEquals("Wed, 31 Dec 1969 23:59:59 GMT", HttpDates.format(-1));
+        // formatted again from the cache
+        assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpDates.format(784111777999L));
+
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        Random r = new Random(0);
+        for (int i=0; i<10000; i++) {
+            long t = (long)(r.nextDouble()*4102444800000L);   // until 2100
+            assertEquals(format.format(new Date(t)), HttpDates.format(t));
+        }
+    }
+
+    public void testParse() {
+        assertEquals(784111777000L, HttpDates.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        assertEquals(784111777000L, HttpDates.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+        assertEquals(784111777000L, HttpDates.parse("Sun Nov  6 08:49:37 1994"));
+        assertEquals(784111777000L, HttpDates.parse("Sun, 06 Nov 1994 08:49:37 GMT; length=1234"));
+        assertEquals(951782400000L, HttpDates.parse("Tue, 29 Feb 2000 00:00:00 GMT"));
+
+        Random r = new Random(0);
+        for (int i=0; i<1000; i++) {
+            long t = (long)(r.nextDouble()*4102444800L)*1000;
+            assertEquals(t, HttpDates.parse(HttpDates.format(t)));
+        }
+    }
+
+    public void testInvalid() {
+        assertEquals(-1, HttpDates.parse(null));
+        assertEquals(-1, HttpDates.parse(""));
+        assertEquals(-1, HttpDates.parse("yesterday"));
+        assertEquals(-1, HttpDates.parse("Sun, 06 Nov 1994 08:49:37 PST"));
+        assertEquals(-1, HttpDates.parse("Sun, 06 Foo 1994 08:49:37 GMT"));
+        assertEquals(-1, HttpDates.parse("Sun, 06 Nov 1994 25:49:37 GMT"));
+        assertEquals(-1, HttpDates.parse("Sun, 06 Nov 1994 8:49:37 GMT"));
+    }
+}
@@ -0,0 +1,32 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+public class RoutingIndexTest extends TestCase {
+    public static class Routes {
+        public void doSubmit(String name, int[] values) {}
+        public <T extends Number> Object jsItem(T index, List<String> tags) { return null; }
+        public Object getItem(String id) { return null; }
+    }
+
+    public void testKey() throws Exception {
+        assertEquals("doSubmit(java.lang.String,int[])", RoutingIndex.key(Routes.class.getMethod("doSubmit", String.class, int[].class)));
+        assertEquals("jsItem(java.lang.Number,java.util.List)", RoutingIndex.key(Routes.class.getMethod("jsItem", Number.class, List.class)));
+    }
+
+    /**
+     * The index is generated when this test is compiled.
+     */
+    public void testGeneratedIndexIsUsed() throws Exception {
+        Method m = Routes.class.getMethod("jsItem", Number.class, List.class);
+        assertEquals(Arrays.asList("index","tags"), Arrays.asList(RoutingIndex.get(Routes.class).getParameterNames(m)));
+        assertEquals(Arrays.asList("index","tags"), Arrays.asList(ClassDescriptor.loadParameterNames(m)));
+        // getters don't have their parameters injected by name
+        assertNull(RoutingIndex.get(Routes.class).getParameterNames(Routes.class.getMethod("getItem", String.class)));
+        assertNull(RoutingIndex.get(String.class).getParameterNames(String.class.getMethod("indexOf", String.class)));
+    }
+}
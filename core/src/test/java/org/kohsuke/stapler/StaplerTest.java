@@ -26,6 +26,14 @@ public class StaplerTest extends TestCase {
         testC12n("/","/abc/def/../../");
         testC12n("/def","/abc/../def");
         testC12n("/xxx","/../../../xxx");
+        testC12n("/a/b/","//a///b//");
+        testC12n("a/c","a/./b/../c");
+        testC12n("/..a/b.","/..a/./b.");
+    }
+
+    public void testCanonicalPathIsNotCopied() {
+        String path = "/job/foo/lastBuild/console";
+        assertSame(path, Stapler.canonicalPath(path));
     }
 
     private void testC12n(String expected, String input) {
@@ -0,0 +1,316 @@
+package org.kohsuke.stapler;
+
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.kohsuke.stapler.compression.CompressionPolicy;
+import org.kohsuke.stapler.compression.CompressionServletResponse;
+import org.mockito.ArgumentCaptor;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static javax.servlet.http.HttpServletResponse.*;
+import static org.mockito.Mockito.*;
+
+public class StaticResourceTest extends AbstractStaplerTestBase {
+    private File file;
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("static", ".bin");
+        byte[] data = new byte[200*1024];
+        for (int i=0; i<data.length; i++)
+            data[i] = (byte)i;
+        FileUtils.writeByteArrayToFile(file, data);
+
+        when(rawResponse.getOutputStream()).thenReturn(new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                body.write(b, off, len);
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    public void testWholeFile() throws Exception {
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        verify(rawResponse).setHeader("Content-Length", Long.toString(file.length()));
+        assertEquals(file.length(), body.size());
+        assertEquals((byte)12345, body.toByteArray()[12345]);
+    }
+
+    public void testRange() throws Exception {
+        when(rawRequest.getHeader("Range")).thenReturn("bytes=100000-100009");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+        verify(rawResponse).setHeader("Content-Range", "bytes 100000-100009/" + file.length());
+        verify(rawResponse).setHeader("Content-Length", "10");
+        assertEquals(10, body.size());
+        assertEquals((byte)100000, body.toByteArray()[0]);
+    }
+
+    public void testSuffixRange() throws Exception {
+        when(rawRequest.getHeader("Range")).thenReturn("bytes=-10");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+        verify(rawResponse).setHeader("Content-Range", "bytes " + (file.length()-10) + "-" + (file.length()-1) + "/" + file.length());
+        assertEquals(10, body.size());
+        assertEquals((byte)(file.length()-10), body.toByteArray()[0]);
+    }
+
+    public void testMultipleRanges() throws Exception {
+        when(rawRequest.getHeader("Range")).thenReturn("bytes=10-11,100-102");
+        serveStream();
+        verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+
+        ArgumentCaptor<String> type = ArgumentCaptor.forClass(String.class);
+        verify(rawResponse, times(2)).setContentType(type.capture());
+        assertTrue(type.getValue().startsWith("multipart/byteranges; boundary="));
+        String boundary = type.getValue().substring(type.getValue().indexOf('=')+1);
+
+        String mimeType = "application/octet-stream";
+        String expected =
+                "\r\n--"+boundary+"\r\nContent-Type: "+mimeType+"\r\nContent-Range: bytes 10-11/"+file.length()+"\r\n\r\n\n\013"+
+                "\r\n--"+boundary+"\r\nContent-Type: "+mimeType+"\r\nContent-Range: bytes 100-102/"+file.length()+"\r\n\r\ndef"+
+                "\r\n--"+boundary+"--\r\n";
+        assertEquals(expected, body.toString("ISO-8859-1"));
+        verify(rawResponse).setHeader("Content-Length", Integer.toString(body.size()));
+    }
+
+    public void testUnsatisfiableRange() throws Exception {
+        when(rawRequest.getHeader("Range")).thenReturn("bytes=" + file.length() + "-");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        verify(rawResponse).setStatus(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+        verify(rawResponse).setHeader("Content-Range", "bytes */" + file.length());
+        assertEquals(0, body.size());
+    }
+
+    public void testIfRange() throws Exception {
+        String etag = StaticResourceCache.etag(file.lastModified(), file.length());
+        when(rawRequest.getHeader("Range")).thenReturn("bytes=0-9");
+        when(rawRequest.getHeader("If-Range")).thenReturn(etag);
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        verify(rawResponse).setHeader("ETag", etag);
+        assertEquals(10, body.size());
+
+        // the resource has changed, so send all of it
+        body.reset();
+        when(rawRequest.getHeader("If-Range")).thenReturn("\"0-0\"");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, file.toURI().toURL(), 0));
+        assertEquals(file.length(), body.size());
+    }
+
+    public void testConditionalRequests() throws Exception {
+        String etag = StaticResourceCache.etag(file.lastModified(), file.length());
+        URL url = file.toURI().toURL();
+
+        when(rawRequest.getHeader("If-None-Match")).thenReturn("W/" + etag);
+        assertTrue(stapler.serveStaticResource(rawRequest, response, url, 0));
+        verify(rawResponse).setStatus(SC_NOT_MODIFIED);
+        assertEquals(0, body.size());
+
+        // If-None-Match takes precedence over If-Modified-Since
+        when(rawRequest.getHeader("If-None-Match")).thenReturn("\"other\"");
+        when(rawRequest.getHeader("If-Modified-Since")).thenReturn("Fri, 31 Dec 9999 23:59:59 GMT");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, url, 0));
+        assertEquals(file.length(), body.size());
+
+        body.reset();
+        when(rawRequest.getHeader("If-None-Match")).thenReturn(null);
+        when(rawRequest.getHeader("If-Match")).thenReturn("W/" + etag);
+        assertTrue(stapler.serveStaticResource(rawRequest, response, url, 0));
+        verify(rawResponse).setStatus(SC_PRECONDITION_FAILED);
+        assertEquals(0, body.size());
+    }
+
+    public void testNotModifiedVaries() throws Exception {
+        byte[] css = "body { color: red; }".getBytes("UTF-8");
+        when(rawRequest.getHeader("If-Modified-Since")).thenReturn("Fri, 31 Dec 9999 23:59:59 GMT");
+        assertTrue(stapler.serveStaticResource(rawRequest, response, new ByteArrayInputStream(css), 1000000000000L, 0, css.length, "style.css"));
+        verify(rawResponse).setStatus(SC_NOT_MODIFIED);
+        verify(rawResponse).setHeader("Vary", "Accept-Encoding");
+        assertEquals(0, body.size());
+    }
+
+    /**
+     * Serves {@link #file} as a stream that can't be read from the file directly.
+     */
+    private void serveStream() throws IOException {
+        assertTrue(stapler.serveStaticResource(rawRequest, response, new FileInputStream(file), file.lastModified(), 0, file.length(), file.getName()));
+    }
+
+    public void testCachedResource() throws Exception {
+        File css = File.createTempFile("static", ".css");
+        try {
+            FileUtils.writeStringToFile(css, "body { color: red; }", "UTF-8");
+            ServletContext context = stapler.getServletContext();
+            when(context.getResourcePaths("/")).thenReturn(Collections.singleton("/app.css"));
+            when(context.getResource("/app.css")).thenReturn(css.toURI().toURL());
+            stapler.buildResourcePaths();
+
+            when(rawRequest.getRequestURI()).thenReturn("/app.css");
+            when(rawRequest.getContextPath()).thenReturn("");
+            when(rawRequest.getLocale()).thenReturn(Locale.ENGLISH);
+            stapler.service(rawRequest, rawResponse);
+            assertEquals("body { color: red; }", body.toString("UTF-8"));
+
+            // served from memory from now on
+            String etag = '"'+Long.toHexString(css.lastModified())+"-14\"";
+            assertTrue(css.delete());
+            body.reset();
+            stapler.service(rawRequest, rawResponse);
+            assertEquals("body { color: red; }", body.toString("UTF-8"));
+            verify(rawResponse, times(2)).setHeader("Vary", "Accept-Encoding");
+
+            body.reset();
+            when(rawRequest.getHeader("If-None-Match")).thenReturn(etag);
+            stapler.service(rawRequest, rawResponse);
+            verify(rawResponse).setStatus(SC_NOT_MODIFIED);
+            assertEquals(0, body.size());
+            verify(rawResponse, times(3)).setHeader("Vary", "Accept-Encoding");
+
+            // until the web application is reloaded
+            stapler.buildResourcePaths();
+        } finally {
+            css.delete();
+        }
+    }
+
+    public void testLocalizedResource() throws Exception {
+        File dir = Files.createTempDir();
+        try {
+            File base = new File(dir, "help.html");
+            FileUtils.writeStringToFile(base, "default");
+            FileUtils.writeStringToFile(new File(dir, "help_ja.html"), "ja");
+            URL url = base.toURI().toURL();
+
+            assertEquals("ja", serve(url, Locale.JAPAN));
+            assertEquals("default", serve(url, Locale.ENGLISH));
+
+            // which variant exists is remembered
+            FileUtils.writeStringToFile(new File(dir, "help_en.html"), "en");
+            assertEquals("default", serve(url, Locale.ENGLISH));
+            // but a variant that went away is looked up again
+            assertTrue(new File(dir, "help_ja.html").delete());
+            assertEquals("default", serve(url, Locale.JAPAN));
+
+            // until the web application is reloaded
+            stapler.buildResourcePaths();
+            assertEquals("en", serve(url, Locale.ENGLISH));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void testPrecompressedSibling() throws Exception {
+        File dir = Files.createTempDir();
+        try {
+            File js = new File(dir, "app.js");
+            FileUtils.writeStringToFile(js, "alert('hello');");
+            FileUtils.writeStringToFile(new File(dir, "app.js.gz"), "compressed");
+            when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+            response.serveFile(request, js.toURI().toURL());
+            assertEquals("compressed", body.toString("UTF-8"));
+            verify(rawResponse).setHeader("Content-Encoding", "gzip");
+            verify(rawResponse).setHeader("Content-Length", "10");
+            verify(rawResponse).setHeader("Vary", "Accept-Encoding");
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void testCompressedOnce() throws Exception {
+        File dir = Files.createTempDir();
+        try {
+            File css = new File(dir, "style.css");
+            FileUtils.writeStringToFile(css, "body { color: red; }");
+            assertTrue(css.setLastModified(1000000000000L));
+            URL url = css.toURI().toURL();
+            when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+            response.serveFile(request, url);
+            assertEquals("body { color: red; }", gunzip(body.toByteArray()));
+            verify(rawResponse).setHeader("Content-Encoding", "gzip");
+            verify(rawResponse).setHeader("Content-Length", Integer.toString(body.size()));
+
+            // the compressed contents are kept until the resource is modified
+            FileUtils.writeStringToFile(css, "body { color: blue; }");
+            assertTrue(css.setLastModified(1000000000000L));
+            body.reset();
+            response.serveFile(request, url);
+            assertEquals("body { color: red; }", gunzip(body.toByteArray()));
+
+            assertTrue(css.setLastModified(1100000000000L));
+            body.reset();
+            response.serveFile(request, url);
+            assertEquals("body { color: blue; }", gunzip(body.toByteArray()));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void testCompressedUnderCompressionFilter() throws Exception {
+        File dir = Files.createTempDir();
+        try {
+            File css = new File(dir, "style.css");
+            FileUtils.writeStringToFile(css, "body { color: red; }");
+            when(rawRequest.getAttribute(CompressionServletResponse.class.getName())).thenReturn(mock(CompressionServletResponse.class));
+            when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+            response.serveFile(request, css.toURI().toURL());
+            assertEquals("body { color: red; }", gunzip(body.toByteArray()));
+            verify(rawResponse).setHeader("Content-Encoding", "gzip");
+            verify(rawResponse).setHeader("Content-Length", Integer.toString(body.size()));
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+
+    public void testTooSmallToCompress() throws Exception {
+        byte[] css = "body { color: red; }".getBytes("UTF-8");
+        when(stapler.getServletContext().getAttribute(CompressionPolicy.class.getName()))
+                .thenReturn(new CompressionPolicy(Deflater.DEFAULT_COMPRESSION, 100, Collections.<String>emptyList(), Collections.<String>emptyList(), 1));
+        when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+
+        assertTrue(stapler.serveStaticResource(rawRequest, response, new ByteArrayInputStream(css), 1000000000000L, 0, css.length, "style.css"));
+        // sent as is, so it's the same bytes every time
+        verify(rawResponse).setHeader("ETag", StaticResourceCache.etag(1000000000000L, css.length));
+        verify(rawResponse).setHeader("Content-Length", Integer.toString(css.length));
+        verify(rawResponse, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals("body { color: red; }", body.toString("UTF-8"));
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        return IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(data)), "UTF-8");
+    }
+
+    private String serve(URL url, Locale locale) throws Exception {
+        when(rawRequest.getLocale()).thenReturn(locale);
+        body.reset();
+        response.serveLocalizedFile(request, url);
+        return body.toString("UTF-8");
+    }
+}
@@ -0,0 +1,39 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+
+public class TokenListTest extends TestCase {
+    public void testTokenize() {
+        TokenList t = new TokenList("/foo//bar\\zot/");
+        assertEquals(Arrays.asList("foo","bar","zot"), Arrays.asList(t.tokens));
+        assertSame(t.tokens, t.rawTokens);
+        assertTrue(t.endsWithSlash);
+
+        t = new TokenList("foo");
+        assertEquals(Arrays.asList("foo"), Arrays.asList(t.tokens));
+        assertFalse(t.endsWithSlash);
+
+        assertEquals(0, new TokenList("").length());
+        assertEquals(0, new TokenList("//").length());
+    }
+
+    public void testDecode() {
+        TokenList t = new TokenList("/a%20b/c/%E6%97%A5");
+        assertEquals(Arrays.asList("a b","c","日"), Arrays.asList(t.tokens));
+        assertEquals(Arrays.asList("a%20b","c","%E6%97%A5"), Arrays.asList(t.rawTokens));
+        assertEquals("/a%20b/c/%E6%97%A5", t.assembleOriginalRestOfPath());
+    }
+
+    public void testDirectoryTraversal() {
+        for (String url : Arrays.asList("/a/../b", "/a/%2e%2E/b", "..")) {
+            try {
+                new TokenList(url);
+                fail(url);
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.kohsuke.stapler;
+
+import junit.framework.TestCase;
+import org.kohsuke.stapler.lang.Klass;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class WebAppTest extends TestCase {
+    public static class Base {}
+    public static class Middle extends Base {}
+    public static class Leaf extends Middle {}
+
+    public void testMetaClassIsBuiltOnce() throws Exception {
+        final WebApp webApp = new WebApp(new MockServletContext());
+        final int threads = 16;
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService es = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<MetaClass>> results = new ArrayList<Future<MetaClass>>();
+            for (int i=0; i<threads; i++) {
+                final Class<?> c = i%2==0 ? Leaf.class : Middle.class;
+                results.add(es.submit(new Callable<MetaClass>() {
+                    public MetaClass call() throws Exception {
+                        start.await();
+                        MetaClass mc = null;
+                        for (int j=0; j<1000; j++)
+                            mc = webApp.getMetaClass(c);
+                        return mc;
+                    }
+                }));
+            }
+            start.countDown();
+
+            MetaClass leaf = webApp.getMetaClass(Leaf.class);
+            MetaClass middle = webApp.getMetaClass(Middle.class);
+            for (int i=0; i<threads; i++)
+                assertSame(i%2==0 ? leaf : middle, results.get(i).get());
+            assertSame(middle, leaf.baseClass);
+            assertSame(webApp.getMetaClass(Base.class), middle.baseClass);
+        } finally {
+            es.shutdown();
+        }
+    }
+
+    public void testMetaClassLoaderIsShared() {
+        ClassLoader cl = getClass().getClassLoader();
+        MetaClassLoader mcl = MetaClassLoader.get(cl);
+        assertSame(mcl, MetaClassLoader.get(cl));
+        assertSame(MetaClassLoader.get(cl.getParent()), mcl.parent);
+    }
+
+    private static class TestFacet extends Facet {
+        public void buildViewDispatchers(MetaClass owner, List<Dispatcher> dispatchers) {
+        }
+
+        public boolean handleIndexRequest(RequestImpl req, ResponseImpl rsp, Object node, MetaClass nodeMetaClass) throws IOException {
+            return false;
+        }
+    }
+
+    public void testFacetClaims() {
+        WebApp webApp = new WebApp(new MockServletContext());
+        webApp.facets.add(new TestFacet() {
+            @Override
+            public Klass<?> getKlass(Object o) {
+                return o instanceof Middle ? Klass.java(Base.class) : null;
+            }
+
+            @Override
+            public boolean claims(Class<?> type) {
+                return Middle.class.isAssignableFrom(type);
+            }
+        });
+        assertFalse(new TestFacet().claims(Base.class));
+
+        MetaClass base = webApp.getMetaClass(Base.class);
+        assertSame(base, webApp.getMetaClass(new Base()));
+        for (int i=0; i<2; i++) {
+            assertSame(base, webApp.getMetaClass(new Leaf()));
+            assertEquals(base.klass, webApp.getKlass(new Leaf()));
+        }
+        assertSame(webApp.getMetaClass(Leaf.class), webApp.getMetaClass(Klass.java(Leaf.class)));
+        assertNotSame(base, webApp.getMetaClass(Leaf.class));
+    }
+
+    public void testFacetAddedLater() {
+        WebApp webApp = new WebApp(new MockServletContext());
+        MetaClass leaf = webApp.getMetaClass(Leaf.class);
+        assertSame(leaf, webApp.getMetaClass(new Leaf()));
+
+        webApp.facets.add(new TestFacet() {
+            @Override
+            public Klass<?> getKlass(Object o) {
+                return o instanceof Leaf ? Klass.java(Base.class) : null;
+            }
+
+            @Override
+            public boolean claims(Class<?> type) {
+                return type==Leaf.class;
+            }
+        });
+        assertSame(webApp.getMetaClass(Base.class), webApp.getMetaClass(new Leaf()));
+        assertSame(leaf, webApp.getMetaClass(Leaf.class));
+
+        webApp.facets.clear();
+        assertSame(leaf, webApp.getMetaClass(new Leaf()));
+    }
+
+    public static class Root {
+        public Child getChild() { return null; }
+        public int getCount() { return 0; }
+        public String getName() { return null; }
+    }
+    public static class Child {
+        public Leaf[] leaves;
+        public Base getDynamic(String token, StaplerRequest req, StaplerResponse rsp) { return null; }
+        public Root getParent() { return null; }
+    }
+
+    public void testWarmUp() {
+        WebApp webApp = new WebApp(new MockServletContext());
+        WarmUp.Summary s = new WarmUp(webApp).parallelism(2).run(Arrays.asList(Root.class, new Root(), new Root()));
+        // Root, Child, Leaf, and Base, each once
+        assertEquals(4, s.classes);
+        assertEquals(0, s.failures);
+        assertSame(webApp.getMetaClass(Leaf.class).baseClass, webApp.getMetaClass(Middle.class));
+    }
+}
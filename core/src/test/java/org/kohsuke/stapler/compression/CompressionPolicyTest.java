@@ -0,0 +1,177 @@
+package org.kohsuke.stapler.compression;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.IOUtils;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.Mockito.*;
+
+public class CompressionPolicyTest extends TestCase {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private HttpServletResponse rsp;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        rsp = mock(HttpServletResponse.class);
+        when(rsp.getOutputStream()).thenReturn(new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                body.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                body.write(b, off, len);
+            }
+        });
+    }
+
+    public void testContentTypes() {
+        CompressionPolicy p = new CompressionPolicy(Deflater.DEFAULT_COMPRESSION, 0,
+                Arrays.asList("text/*", "application/json"), Arrays.asList("text/event-stream"), 1);
+        assertTrue(p.isCompressible("text/html;charset=UTF-8"));
+        assertTrue(p.isCompressible("Application/JSON"));
+        assertFalse(p.isCompressible("text/event-stream"));
+        assertFalse(p.isCompressible("image/svg+xml"));
+        assertFalse(p.isCompressible(null));
+
+        assertTrue(CompressionPolicy.DEFAULT.isCompressible(null));
+        assertTrue(CompressionPolicy.DEFAULT.isCompressible("text/plain"));
+        assertFalse(CompressionPolicy.DEFAULT.isCompressible("image/png"));
+    }
+
+    public void testSmallResponse() throws Exception {
+        CompressionPolicy p = policy(100);
+        CompressingServletOutputStream out = p.compress(rsp, "text/plain");
+        out.write("Hello World".getBytes("UTF-8"));
+        out.close();
+
+        assertEquals("Hello World", body.toString("UTF-8"));
+        verify(rsp).setContentLength(11);
+        verify(rsp, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(1, p.getUncompressedResponses());
+        assertEquals(0, p.getCompressedResponses());
+    }
+
+    public void testLargeResponse() throws Exception {
+        CompressionPolicy p = policy(100);
+        String content = content();
+        CompressingServletOutputStream out = p.compress(rsp, null);
+        out.setContentType("text/plain");
+        // write byte by byte across the threshold
+        byte[] data = content.getBytes("UTF-8");
+        for (int i=0; i<200; i++)
+            out.write(data[i]);
+        assertTrue(out.isCompressing());
+        out.write(data, 200, data.length-200);
+        out.close();
+
+        verify(rsp).setHeader("Content-Encoding", "gzip");
+        assertEquals(content, gunzip(body.toByteArray()));
+        assertEquals(1, p.getCompressedResponses());
+        assertEquals(data.length, p.getBytesIn());
+        assertEquals(body.size(), p.getBytesOut());
+    }
+
+    public void testDeniedType() throws Exception {
+        CompressionPolicy p = policy(0);
+        CompressingServletOutputStream out = p.compress(rsp, "image/png");
+        out.write(content().getBytes("UTF-8"));
+        out.close();
+
+        assertEquals(content(), body.toString("UTF-8"));
+        verify(rsp, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(1, p.getUncompressedResponses());
+    }
+
+    public void testFlushDecides() throws Exception {
+        CompressionPolicy p = policy(100);
+        CompressingServletOutputStream out = p.compress(rsp, "text/plain");
+        out.write('x');
+        out.flush();
+        assertTrue(out.isCompressing());
+        out.close();
+        assertEquals("x", gunzip(body.toByteArray()));
+    }
+
+    public void testDeflatersAreReused() throws Exception {
+        CompressionPolicy p = policy(0);
+        Deflater d = p.deflaters.borrow();
+        p.deflaters.release(d);
+        for (int i=0; i<3; i++) {
+            body.reset();
+            CompressingServletOutputStream out = p.compress(rsp, "text/plain");
+            out.write(("response "+i).getBytes("UTF-8"));
+            assertTrue(out.isCompressing());
+            // the pooled one is in use by the response
+            Deflater other = p.deflaters.borrow();
+            assertNotSame(d, other);
+            other.end();
+            out.close();
+            assertEquals("response "+i, gunzip(body.toByteArray()));
+            // and back in the pool afterward
+            assertSame(d, p.deflaters.borrow());
+            p.deflaters.release(d);
+        }
+    }
+
+    public void testContentLengthOfUncompressedResponse() throws Exception {
+        CompressionServletResponse wrapper = new CompressionServletResponse(rsp, policy(0));
+        wrapper.setContentType("image/png");
+        wrapper.activate();
+        byte[] data = content().getBytes("UTF-8");
+        wrapper.setContentLength(data.length);
+        wrapper.getOutputStream().write(data);
+        wrapper.close();
+
+        assertEquals(content(), body.toString("UTF-8"));
+        verify(rsp).setContentLength(data.length);
+        verify(rsp, never()).setHeader(eq("Content-Encoding"), anyString());
+    }
+
+    public void testNoContentLengthOfCompressedResponse() throws Exception {
+        CompressionServletResponse wrapper = new CompressionServletResponse(rsp, policy(0));
+        byte[] data = content().getBytes("UTF-8");
+        wrapper.setContentType("text/plain");
+        wrapper.activate();
+        wrapper.setContentLength(data.length);
+        wrapper.getOutputStream().write(data);
+        wrapper.close();
+        assertEquals(content(), gunzip(body.toByteArray()));
+        verify(rsp, never()).setContentLength(anyInt());
+    }
+
+    public void testPool() {
+        DeflaterPool pool = new DeflaterPool(Deflater.BEST_SPEED, 1);
+        Deflater a = pool.borrow(), b = pool.borrow();
+        assertNotSame(a, b);
+        pool.release(a);
+        pool.release(b); // beyond the pool size
+        assertSame(a, pool.borrow());
+        assertNotSame(b, pool.borrow());
+    }
+
+    private static CompressionPolicy policy(int minSize) {
+        return new CompressionPolicy(Deflater.BEST_SPEED, minSize, Collections.<String>emptyList(), Arrays.asList("image/"), 1);
+    }
+
+    private static String content() {
+        StringBuilder buf = new StringBuilder();
+        for (int i=0; i<1000; i++)
+            buf.append("line ").append(i).append('\n');
+        return buf.toString();
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        return IOUtils.toString(new GZIPInputStream(new ByteArrayInputStream(data)), "UTF-8");
+    }
+}
@@ -3,7 +3,9 @@ package org.kohsuke.stapler.export;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
@@ -74,4 +76,20 @@ public class JSONDataWriterTest {
         }
     }
 
+    @Test
+    public void exceptionHandlingInMap() throws IOException {
+        Map<String,Super> m = new LinkedHashMap<String,Super>();
+        m.put("a", new Sub2());
+        m.put("b", new Broken());
+        m.put("c", new Sub2());
+        assertEquals("{\"_class\":\"SuperMap\",\"elements\":{\"a\":{\"_class\":\"Sub2\",\"basic\":\"super\",\"generic\":\"sub2\"},\"c\":{\"_class\":\"Sub2\",\"basic\":\"super\",\"generic\":\"sub2\"}}}",
+                     serialize(new SuperMap(m), SuperMap.class));
+    }
+    @ExportedBean public static class SuperMap {
+        @Exported public final Map<String,Super> elements;
+        public SuperMap(Map<String,Super> elements) {
+            this.elements = elements;
+        }
+    }
+
 }
@@ -26,6 +26,7 @@ package org.kohsuke.stapler.export;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
@@ -218,4 +219,45 @@ public class ModelTest {
             return "property1";
         }
     }
+
+    //===========================================
+
+    @Test
+    public void valueKinds() {
+        assertEquals(ValueKind.STRING, builder.getKind(String.class));
+        assertEquals(ValueKind.PRIMITIVE, builder.getKind(Integer.class));
+        assertEquals(ValueKind.ITERABLE, builder.getKind(ArrayList.class));
+        assertEquals(ValueKind.MODEL, builder.getKind(C.class));
+        assertEquals(ValueKind.UNSUPPORTED, builder.getKind(Object.class));
+        try {
+            builder.get(String.class);
+            Assert.fail();
+        } catch (NotExportableException e) {
+            assertEquals(String.class, e.getType());
+        }
+    }
+
+    //===========================================
+
+    @Test
+    public void accessors() throws Exception {
+        StringWriter sw = new StringWriter();
+        Accessors o = new Accessors();
+        builder.get(Accessors.class).writeTo(o, TreePruner.DEFAULT, Flavor.JSON.createDataWriter(o, sw, config));
+        assertEquals("{'_class':'Accessors','constant':'constant','field':1,'primitive':true}", sw.toString().replace('"','\''));
+    }
+
+    @ExportedBean
+    public static class Accessors {
+        @Exported
+        public static final String constant = "constant";
+
+        @Exported
+        public int field = 1;
+
+        @Exported
+        public boolean isPrimitive() {
+            return true;
+        }
+    }
 }
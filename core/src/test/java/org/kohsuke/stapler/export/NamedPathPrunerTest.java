@@ -65,6 +65,24 @@ public class NamedPathPrunerTest extends TestCase {
         assertResult("{_class:Vhew,jobs:[{name:job97},{name:job98},{name:job99}]}", v, "jobs[name]{97,}");
     }
     
+    public void testCachedPrunerIsReused() throws Exception {
+        String spec = "jobs[name],views[*]";
+        NamedPathPruner p = NamedPathPruner.of(spec);
+        assertSame(p, NamedPathPruner.of(spec));
+
+        Jhob job = new Jhob("job1", "Job #1", "whatever");
+        Vhew view = new Vhew("All", "crap", new Jhob[] {job});
+        Stuff bean = new Stuff(new Jhob[] {job}, Arrays.asList(view));
+        for (int i=0; i<2; i++) {
+            // a fresh ModelBuilder each time, so the same pruner sees different Models
+            Model<Stuff> model = new ModelBuilder().get(Stuff.class);
+            StringWriter w = new StringWriter();
+            model.writeTo(bean, p, Flavor.JSON.createDataWriter(bean, w, config));
+            assertEquals("{_class:Stuff,jobs:[{name:job1}],views:[{jobs:[{}],name:All,trash:crap}]}",
+                    w.toString().replace("\\\"", "").replace("\"", ""));
+        }
+    }
+
     @ExportedBean public static class Stuff {
         @Exported public Jhob[] jobs;
         @Exported public List<Vhew> views;
@@ -0,0 +1,80 @@
+package org.kohsuke.stapler.export;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+public class StreamingJSONDataWriterTest {
+    @ExportedBean public static class Node {
+        @Exported public String text = "quote\" backslash\\ newline\n tab\t control\u0001 é€😀 lone\ud800";
+        @Exported public int number = 42;
+        @Exported public boolean flag = true;
+        @Exported public String none = null;
+        @Exported public int[] numbers = {1, 2, 3};
+        @Exported(visibility=2) public List<Object> children = Arrays.<Object>asList("x", new Leaf(), new Broken(), new Leaf());
+        @Exported(visibility=2) public Map<String,Object> map = new LinkedHashMap<String,Object>();
+        {
+            map.put("a", new Leaf());
+            map.put("ü", "umlaut");
+        }
+    }
+
+    @ExportedBean public static class Leaf {
+        @Exported public String name = "leaf";
+    }
+
+    @ExportedBean public static class Broken {
+        @Exported public String getName() { throw new RuntimeException("oops"); }
+    }
+
+    private byte[] viaWriter(Node bean, ExportConfig config) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        Writer w = new OutputStreamWriter(baos, "UTF-8");
+        new ModelBuilder().get(Node.class).writeTo(bean, Flavor.JSON.createDataWriter(bean, w, config));
+        w.close();
+        return baos.toByteArray();
+    }
+
+    private byte[] viaStream(Node bean, ExportConfig config) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new ModelBuilder().get(Node.class).writeTo(bean, Flavor.JSON.createDataWriter(bean, baos, config));
+        return baos.toByteArray();
+    }
+
+    private void assertSameOutput(ExportConfig config) throws IOException {
+        Node n = new Node();
+        byte[] expected = viaWriter(n, config);
+        assertTrue(expected.length>0);
+        assertArrayEquals(new String(expected, "UTF-8"), expected, viaStream(n, config));
+    }
+
+    @Test
+    public void sameAsJSONDataWriter() throws IOException {
+        assertSameOutput(new ExportConfig().withSkipIfFail(true));
+    }
+
+    @Test
+    public void sameAsJSONDataWriterWhenPrettyPrinted() throws IOException {
+        assertSameOutput(new ExportConfig().withSkipIfFail(true).withPrettyPrint(true));
+    }
+
+    @Test
+    public void largeOutput() throws IOException {
+        Node n = new Node();
+        char[] big = new char[100000];
+        Arrays.fill(big, 'é');
+        n.text = new String(big);
+        ExportConfig config = new ExportConfig().withSkipIfFail(true);
+        assertArrayEquals(viaWriter(n, config), viaStream(n, config));
+    }
+}
@@ -0,0 +1,35 @@
+package org.kohsuke.stapler.jsr269;
+
+import java.util.Collections;
+
+import net.java.dev.hickory.testing.Compilation;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoutingIndexProcessorTest {
+
+    @Test public void basicOutput() {
+        Compilation compilation = new Compilation();
+        compilation.addSource("some.pkg.Stuff").
+                addLine("package some.pkg;").
+                addLine("import org.kohsuke.stapler.WebMethod;").
+                addLine("public class Stuff {").
+                addLine("  public void doOneThing(String key, int[] values) {}").
+                addLine("  @WebMethod(name=\"x\") public void another(java.util.List<String> names) {}").
+                addLine("  public void doNothing() {}").
+                addLine("  public void helper(String ignored) {}").
+                addLine("  public Object getItem(String ignored) { return null; }").
+                addLine("  public static class Nested {").
+                addLine("    public <T extends Number> Object jsItem(T index) { return null; }").
+                addLine("  }").
+                addLine("}");
+        compilation.doCompile(null, "-source", "6");
+        assertEquals(Collections.emptyList(), compilation.getDiagnostics());
+        assertEquals("{another(java.util.List)=names, doOneThing(java.lang.String,int[])=key,values}",
+                Utils.normalizeProperties(Utils.getGeneratedResource(compilation, "META-INF/stapler/routes/some.pkg.Stuff.stapler")));
+        assertEquals("{jsItem(java.lang.Number)=index}",
+                Utils.normalizeProperties(Utils.getGeneratedResource(compilation, "META-INF/stapler/routes/some.pkg.Stuff$Nested.stapler")));
+    }
+
+}
@@ -28,6 +28,8 @@ public class JRebelFacet extends Facet {
         public void run() {
             ReloaderFactory.getInstance().addClassReloadListener(new ClassEventListener() {
                 public void onClassEvent(int eventType, Class klass) {
+                    // MetaClasses are rebuilt from these
+                    ClassDescriptor.clearCache();
                     synchronized (metaClasses) {
                         for (Entry<Class, MetaClass> e : metaClasses.entrySet()) {
                             if (klass.isAssignableFrom(e.getKey())) {
@@ -38,6 +40,10 @@ public class JRebelFacet extends Facet {
                     }
                     // purge the model builder cache
                     ResponseImpl.MODEL_BUILDER = new ModelBuilder();
+                    // and the data binding cache
+                    BindingDescriptor.clearCache();
+                    BinderPlan.clearCache();
+                    RoutingIndex.clearCache();
                 }
 
                 public int priority() {
@@ -95,6 +95,11 @@ public class JRubyFacet extends Facet implements JellyCompatibleFacet {
         return null;
     }
 
+    @Override
+    public boolean claims(Class<?> type) {
+        return RubyObject.class.isAssignableFrom(type);
+    }
+
     private Klass<RubyModule> makeKlass(RubyModule o) {
         return new Klass<RubyModule>(o,navigator);
     }
@@ -87,7 +87,7 @@ public class RubyKlassNavigator extends KlassNavigator<RubyModule> {
     @Override
     public List<Function> getFunctions(RubyModule clazz) {
         // implemented as a fallback to Java through reified class, but maybe there's a better way to do this
-        return new ClassDescriptor(toJavaClass(clazz)).methods;
+        return ClassDescriptor.get(toJavaClass(clazz)).methods;
     }
 
     @Override